@@ -0,0 +1,41 @@
+package pe.soapros.document.application;
+
+import pe.soapros.document.domain.TemplateRequest;
+import pe.soapros.document.domain.exception.DocumentTimeoutException;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output stream that stops a render once the deadline of its request has passed or its
+ * thread has been interrupted: the next write fails, so the generator unwinds and the
+ * partial output is discarded by the caller.
+ */
+class DeadlineOutputStream extends FilterOutputStream {
+
+    private final TemplateRequest request;
+
+    DeadlineOutputStream(OutputStream out, TemplateRequest request) {
+        super(out);
+        this.request = request;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        checkDeadline();
+        out.write(b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        checkDeadline();
+        out.write(bytes, offset, length);
+    }
+
+    private void checkDeadline() {
+        if (request.isExpired() || Thread.currentThread().isInterrupted()) {
+            throw new DocumentTimeoutException("Document deadline exceeded: " + request.getTemplatePath());
+        }
+    }
+}
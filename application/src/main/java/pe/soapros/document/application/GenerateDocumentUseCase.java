@@ -2,10 +2,17 @@ package pe.soapros.document.application;
 
 import pe.soapros.document.domain.*;
 import pe.soapros.document.domain.exception.DocumentGenerationException;
+import pe.soapros.document.domain.exception.DocumentTimeoutException;
 import pe.soapros.document.domain.exception.TemplateProcessingException;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 /**
  * Use case for generating documents from templates in various formats (PDF, HTML, TXT).
@@ -13,6 +20,8 @@ import java.io.IOException;
  * based on the requested format.
  */
 public class GenerateDocumentUseCase {
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
     private final DocumentGeneratorFactory generatorFactory;
     private final DocumentRepository repository;
     private final TemplateRepository templateRepository;
@@ -42,32 +51,128 @@ public class GenerateDocumentUseCase {
      * Executes the document generation use case.
      * Selects the appropriate generator based on the fileType in the request.
      *
+     * The document is written to the sink of the request (see {@link TemplateRequest#resolveSink()}):
+     * - MEMORY: kept in memory and returned in the result, nothing is written to disk
+     * - LOCAL_FILE: streamed to pathFile
+     * - REPOSITORY: streamed straight to the repository while it is generated (no local file)
+     *
+     * If the request has a deadline, the render stops (and its partial output is discarded)
+     * once it passes or the thread is interrupted.
+     *
      * @param data the template request with all required data
-     * @param pathFile the path where the document should be saved locally
-     * @return DocumentResult containing the document bytes and paths
+     * @param pathFile the path where the document should be saved locally (its name is reused in the repository)
+     * @return DocumentResult containing the document paths and size (bytes only for the MEMORY sink)
      * @throws DocumentGenerationException if any error occurs during generation
+     * @throws DocumentTimeoutException if the deadline of the request passes
      */
     public DocumentResult execute(TemplateRequest data, String pathFile) throws DocumentGenerationException {
         DocumentGenerator generator = generatorFactory.getGenerator(data.getFileType());
 
-        // Obtener el template (descargarlo/copiarlo al caché si tiene protocolo)
-        if (!templateRepository.isLocal(data.getTemplatePath())) {
-            java.io.File localTemplateFile = templateRepository.getTemplate(data.getTemplatePath());
-            // Update the template path to point to the local cached file (bypasses validation)
-            data.setResolvedTemplatePath(localTemplateFile.getAbsolutePath());
+        prepare(data);
+
+        if (data.isExpired()) {
+            throw new DocumentTimeoutException("Document deadline exceeded before rendering: " + data.getTemplatePath());
         }
 
-        // Generate the document
-        byte[] documentGenerate = generator.generate(data);
+        return switch (data.resolveSink()) {
+            case MEMORY -> generateToMemory(generator, data);
+            case REPOSITORY -> generateToRepository(generator, data, new File(pathFile).getName());
+            case LOCAL_FILE -> generateToFile(generator, data, pathFile);
+        };
+    }
 
-        // Write to local filesystem
-        try (FileOutputStream os = new FileOutputStream(pathFile)) {
-            os.write(documentGenerate);
+    /**
+     * Resolves the template of a request (download/copy to the cache if it has a protocol).
+     * This is the I/O part of the generation: callers may run it on an I/O thread before
+     * calling {@link #execute}, which then skips it. Does nothing if already resolved.
+     *
+     * @param data the template request
+     * @throws DocumentGenerationException if the template cannot be obtained
+     */
+    public void prepare(TemplateRequest data) throws DocumentGenerationException {
+        if (data.getResolvedTemplate() != null || templateRepository.isLocal(data.getTemplatePath())) {
+            return;
+        }
+        TemplateContent template = templateRepository.getTemplateContent(data.getTemplatePath());
+        // Generators render from memory; the path points to the cached file (bypasses validation)
+        data.setResolvedTemplate(template);
+    }
+
+    /**
+     * Generates a document keeping it in memory only.
+     *
+     * @param generator the generator for the requested format
+     * @param data the template request
+     * @return DocumentResult with the document bytes (no path)
+     */
+    private DocumentResult generateToMemory(DocumentGenerator generator, TemplateRequest data) {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        generator.generate(data, withDeadline(os, data));
+        return new DocumentResult(os.toByteArray(), null);
+    }
+
+    /**
+     * Generates a document streaming it to the local filesystem.
+     *
+     * @param generator the generator for the requested format
+     * @param data the template request
+     * @param pathFile the local file path
+     * @return DocumentResult with the "fs@" local path and size
+     */
+    private DocumentResult generateToFile(DocumentGenerator generator, TemplateRequest data, String pathFile) {
+        long size;
+        try (OutputStream os = new BufferedOutputStream(new FileOutputStream(pathFile), OUTPUT_BUFFER_SIZE)) {
+            generator.generate(data, withDeadline(os, data));
         } catch (IOException e) {
+            deletePartialFile(pathFile);
             throw new TemplateProcessingException("Failed to write document to file path: " + pathFile, e);
+        } catch (RuntimeException e) {
+            // Do not leave a truncated document behind
+            deletePartialFile(pathFile);
+            throw e;
+        }
+        try {
+            size = Files.size(Path.of(pathFile));
+        } catch (IOException e) {
+            throw new TemplateProcessingException("Failed to read document size: " + pathFile, e);
         }
 
         String localPathWithProtocol = "fs@" + pathFile;
-        return new DocumentResult(documentGenerate, localPathWithProtocol);
+        return new DocumentResult(null, localPathWithProtocol, size);
+    }
+
+    /**
+     * Generates a document streaming it to the repository as it is produced.
+     *
+     * @param generator the generator for the requested format
+     * @param data the template request
+     * @param fileName the document file name
+     * @return DocumentResult with the repository path and size
+     */
+    private DocumentResult generateToRepository(DocumentGenerator generator, TemplateRequest data, String fileName) {
+        DocumentUpload upload = repository.openUpload(fileName);
+        try {
+            generator.generate(data, withDeadline(upload.getOutputStream(), data));
+        } catch (RuntimeException e) {
+            upload.abort();
+            throw e;
+        }
+
+        String repositoryPath = upload.complete();
+        DocumentResult result = new DocumentResult(null, null, upload.getSize());
+        result.setRepositoryPath(repositoryPath);
+        return result;
+    }
+
+    private static OutputStream withDeadline(OutputStream os, TemplateRequest data) {
+        return data.getDeadline() > 0 ? new DeadlineOutputStream(os, data) : os;
+    }
+
+    private void deletePartialFile(String pathFile) {
+        try {
+            Files.deleteIfExists(Path.of(pathFile));
+        } catch (IOException ignored) {
+            // Best effort
+        }
     }
 }
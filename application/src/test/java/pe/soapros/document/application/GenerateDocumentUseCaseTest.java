@@ -10,17 +10,25 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import pe.soapros.document.domain.DocumentGenerator;
 import pe.soapros.document.domain.DocumentRepository;
 import pe.soapros.document.domain.DocumentResult;
+import pe.soapros.document.domain.DocumentSink;
+import pe.soapros.document.domain.DocumentUpload;
 import pe.soapros.document.domain.TemplateRepository;
 import pe.soapros.document.domain.TemplateRequest;
 import pe.soapros.document.domain.exception.DocumentGenerationException;
+import pe.soapros.document.domain.exception.DocumentTimeoutException;
 import pe.soapros.document.domain.exception.TemplateNotFoundException;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
@@ -42,6 +50,9 @@ class GenerateDocumentUseCaseTest {
     @Mock
     private TemplateRepository templateRepository;
 
+    @Mock
+    private DocumentUpload mockUpload;
+
     private GenerateDocumentUseCase useCase;
 
     @BeforeEach
@@ -56,25 +67,25 @@ class GenerateDocumentUseCaseTest {
     }
 
     @Test
-    void shouldGenerateDocumentSuccessfully() throws DocumentGenerationException {
+    void shouldGenerateDocumentSuccessfully() throws Exception {
         // Arrange
         TemplateRequest request = createValidTemplateRequest();
         byte[] expectedPdf = new byte[]{1, 2, 3, 4, 5};
         String pathFile = getPathFile();
 
-        when(mockGenerator.generate(any(TemplateRequest.class)))
-                .thenReturn(expectedPdf);
+        stubGeneratedDocument(expectedPdf);
 
         // Act
         DocumentResult result = useCase.execute(request, pathFile);
 
         // Assert
         assertNotNull(result);
-        assertNotNull(result.getDocumentBytes());
-        assertArrayEquals(expectedPdf, result.getDocumentBytes());
-        assertEquals(pathFile, result.getLocalPath());
+        assertNull(result.getDocumentBytes()); // Streamed to the file, not kept in memory
+        assertEquals(expectedPdf.length, result.getSize());
+        assertArrayEquals(expectedPdf, Files.readAllBytes(Path.of(pathFile)));
+        assertEquals("fs@" + pathFile, result.getLocalPath());
         assertNull(result.getRepositoryPath()); // Not persisted
-        verify(mockGenerator, times(1)).generate(request);
+        verify(mockGenerator, times(1)).generate(eq(request), any(OutputStream.class));
     }
 
     @Test
@@ -83,8 +94,7 @@ class GenerateDocumentUseCaseTest {
         TemplateRequest request = createValidTemplateRequest();
         TemplateNotFoundException expectedException = new TemplateNotFoundException("template.docx");
 
-        when(mockGenerator.generate(any(TemplateRequest.class)))
-                .thenThrow(expectedException);
+        doThrow(expectedException).when(mockGenerator).generate(any(TemplateRequest.class), any(OutputStream.class));
 
         // Act & Assert
         DocumentGenerationException exception = assertThrows(
@@ -94,7 +104,7 @@ class GenerateDocumentUseCaseTest {
 
         assertTrue(exception instanceof TemplateNotFoundException);
         assertEquals(expectedException.getMessage(), exception.getMessage());
-        verify(mockGenerator, times(1)).generate(request);
+        verify(mockGenerator, times(1)).generate(eq(request), any(OutputStream.class));
     }
 
     @Test
@@ -103,14 +113,14 @@ class GenerateDocumentUseCaseTest {
         TemplateRequest request = createValidTemplateRequest();
         byte[] expectedPdf = new byte[]{1, 2, 3};
 
-        when(mockGenerator.generate(any(TemplateRequest.class))).thenReturn(expectedPdf);
+        stubGeneratedDocument(expectedPdf);
 
         // Act
         DocumentResult result = useCase.execute(request, getPathFile());
 
         // Assert
         assertNotNull(result);
-        verify(mockGenerator, times(1)).generate(request);
+        verify(mockGenerator, times(1)).generate(eq(request), any(OutputStream.class));
         verifyNoMoreInteractions(mockGenerator);
     }
 
@@ -120,16 +130,14 @@ class GenerateDocumentUseCaseTest {
         TemplateRequest request = createValidTemplateRequest();
         byte[] emptyPdf = new byte[0];
 
-        when(mockGenerator.generate(any(TemplateRequest.class)))
-                .thenReturn(emptyPdf);
+        stubGeneratedDocument(emptyPdf);
 
         // Act
         DocumentResult result = useCase.execute(request, getPathFile());
 
         // Assert
         assertNotNull(result);
-        assertNotNull(result.getDocumentBytes());
-        assertEquals(0, result.getDocumentBytes().length);
+        assertEquals(0, result.getSize());
     }
 
     @Test
@@ -140,21 +148,26 @@ class GenerateDocumentUseCaseTest {
         byte[] expectedPdf = new byte[]{1, 2, 3, 4, 5};
         String pathFile = getPathFile();
         String expectedS3Path = "s3@:my-bucket/generated-documents/2025/11/04/doc-uuid.pdf";
+        ByteArrayOutputStream uploaded = new ByteArrayOutputStream();
 
-        when(mockGenerator.generate(any(TemplateRequest.class)))
-                .thenReturn(expectedPdf);
-        when(mockRepository.save(any(String.class)))
-                .thenReturn(expectedS3Path);
+        stubGeneratedDocument(expectedPdf);
+        when(mockRepository.openUpload(any(String.class))).thenReturn(mockUpload);
+        when(mockUpload.getOutputStream()).thenReturn(uploaded);
+        when(mockUpload.complete()).thenReturn(expectedS3Path);
+        when(mockUpload.getSize()).thenReturn((long) expectedPdf.length);
 
         // Act
         DocumentResult result = useCase.execute(request, pathFile);
 
-        // Assert
+        // Assert: streamed to the repository, no local file written
         assertNotNull(result);
-        assertArrayEquals(expectedPdf, result.getDocumentBytes());
-        assertEquals(pathFile, result.getLocalPath());
+        assertEquals(expectedPdf.length, result.getSize());
+        assertArrayEquals(expectedPdf, uploaded.toByteArray());
+        assertNull(result.getLocalPath());
+        assertFalse(new File(pathFile).exists());
         assertEquals(expectedS3Path, result.getRepositoryPath());
-        verify(mockRepository, times(1)).save(pathFile);
+        verify(mockRepository, times(1)).openUpload(new File(pathFile).getName());
+        verify(mockRepository, never()).save(any());
     }
 
     @Test
@@ -164,8 +177,7 @@ class GenerateDocumentUseCaseTest {
         request.setPersist(false);
         byte[] expectedPdf = new byte[]{1, 2, 3};
 
-        when(mockGenerator.generate(any(TemplateRequest.class)))
-                .thenReturn(expectedPdf);
+        stubGeneratedDocument(expectedPdf);
 
         // Act
         DocumentResult result = useCase.execute(request, getPathFile());
@@ -174,6 +186,51 @@ class GenerateDocumentUseCaseTest {
         assertNotNull(result);
         assertNull(result.getRepositoryPath());
         verify(mockRepository, never()).save(any());
+        verify(mockRepository, never()).openUpload(any());
+    }
+
+    @Test
+    void shouldKeepDocumentInMemoryWithMemorySink() throws DocumentGenerationException {
+        // Arrange
+        TemplateRequest request = createValidTemplateRequest();
+        request.setSink(DocumentSink.MEMORY);
+        byte[] expectedPdf = new byte[]{1, 2, 3};
+        String pathFile = getPathFile();
+
+        stubGeneratedDocument(expectedPdf);
+
+        // Act
+        DocumentResult result = useCase.execute(request, pathFile);
+
+        // Assert
+        assertArrayEquals(expectedPdf, result.getDocumentBytes());
+        assertEquals(expectedPdf.length, result.getSize());
+        assertNull(result.getLocalPath());
+        assertNull(result.getRepositoryPath());
+        assertFalse(new File(pathFile).exists());
+        verify(mockRepository, never()).openUpload(any());
+    }
+
+    @Test
+    void shouldNotRenderWhenDeadlineHasPassed() {
+        // Arrange
+        TemplateRequest request = createValidTemplateRequest();
+        request.setDeadline(System.currentTimeMillis() - 1);
+        String pathFile = getPathFile();
+
+        // Act & Assert
+        assertThrows(DocumentTimeoutException.class, () -> useCase.execute(request, pathFile));
+        verify(mockGenerator, never()).generate(any(TemplateRequest.class), any(OutputStream.class));
+        assertFalse(new File(pathFile).exists());
+    }
+
+    // Helper method to make the mock generator stream a document to the sink
+    private void stubGeneratedDocument(byte[] document) {
+        doAnswer(invocation -> {
+            OutputStream output = invocation.getArgument(1);
+            output.write(document);
+            return null;
+        }).when(mockGenerator).generate(any(TemplateRequest.class), any(OutputStream.class));
     }
 
     // Helper method to create valid test data
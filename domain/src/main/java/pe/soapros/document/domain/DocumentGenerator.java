@@ -2,18 +2,37 @@ package pe.soapros.document.domain;
 
 import pe.soapros.document.domain.exception.DocumentGenerationException;
 
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+
 /**
  * Port interface for document generation.
  * Implementations should generate PDF documents from templates.
  */
 public interface DocumentGenerator {
 
+    /**
+     * Generates a document from the provided template request and writes it to the output stream.
+     * The document is streamed as it is rendered, so no full copy of it is kept on heap.
+     * The stream is flushed but not closed: it belongs to the caller.
+     *
+     * @param templateData the template request containing template path, data, and images
+     * @param output the stream receiving the generated document
+     * @throws DocumentGenerationException if any error occurs during document generation
+     */
+    void generate(TemplateRequest templateData, OutputStream output) throws DocumentGenerationException;
+
     /**
      * Generates a PDF document from the provided template request.
+     * Buffers the whole document in memory: prefer {@link #generate(TemplateRequest, OutputStream)}.
      *
      * @param templateData the template request containing template path, data, and images
      * @return byte array containing the generated PDF document
      * @throws DocumentGenerationException if any error occurs during document generation
      */
-    byte[] generate(TemplateRequest templateData) throws DocumentGenerationException;
+    default byte[] generate(TemplateRequest templateData) throws DocumentGenerationException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        generate(templateData, output);
+        return output.toByteArray();
+    }
 }
@@ -12,4 +12,13 @@ public interface DocumentRepository {
      * @return the repository path where the document was saved (e.g., "s3@:bucket/path/file")
      */
     String save(String filePathToUpload);
+
+    /**
+     * Opens a streaming upload of a generated document, so it can be persisted while it
+     * is being generated without writing a local file first.
+     *
+     * @param fileName the document file name (used to build the repository key and content type)
+     * @return the upload to write the document to
+     */
+    DocumentUpload openUpload(String fileName);
 }
@@ -5,15 +5,21 @@ import lombok.Data;
 
 /**
  * Result of a document generation operation.
- * Contains both the document bytes and the path where it was saved.
+ * Contains the path where the document was saved and, when kept in memory, its bytes.
  */
 @Data
 public class DocumentResult {
     /**
-     * The generated document bytes
+     * The generated document bytes.
+     * Null when the document was streamed to its sink without being kept in memory.
      */
     private byte[] documentBytes;
 
+    /**
+     * Size of the generated document in bytes
+     */
+    private long size;
+
     /**
      * The local file path where the document was saved
      */
@@ -25,6 +31,12 @@ public class DocumentResult {
      */
     private String repositoryPath;
 
+    /**
+     * Why the document could not be generated (e.g. deadline exceeded).
+     * Null for generated documents.
+     */
+    private String errorMessage;
+
     /**
      * Creates a result with only local path (no persistence).
      *
@@ -32,8 +44,38 @@ public class DocumentResult {
      * @param localPath the local file path
      */
     public DocumentResult(byte[] documentBytes, String localPath) {
-        //this(documentBytes, localPath, null);
+        this(documentBytes, localPath, documentBytes != null ? documentBytes.length : 0);
+    }
+
+    /**
+     * Creates a result with only local path (no persistence) and an explicit size.
+     *
+     * @param documentBytes the document bytes (null if the document was only streamed)
+     * @param localPath the local file path
+     * @param size the document size in bytes
+     */
+    public DocumentResult(byte[] documentBytes, String localPath, long size) {
         this.documentBytes = documentBytes;
         this.localPath = localPath;
+        this.size = size;
+    }
+
+    /**
+     * Creates the result of a document that could not be generated.
+     *
+     * @param errorMessage why the document failed
+     * @return a result with no paths and the error message
+     */
+    public static DocumentResult failed(String errorMessage) {
+        DocumentResult result = new DocumentResult(null, null, 0);
+        result.setErrorMessage(errorMessage);
+        return result;
+    }
+
+    /**
+     * @return true if the document could not be generated
+     */
+    public boolean isFailed() {
+        return errorMessage != null;
     }
 }
@@ -0,0 +1,22 @@
+package pe.soapros.document.domain;
+
+/**
+ * Where a generated document is written.
+ */
+public enum DocumentSink {
+    /**
+     * Kept in memory only: the result carries the document bytes, nothing is written to disk.
+     * Only for callers that consume the bytes (the REST and Kafka entrypoints return locations).
+     */
+    MEMORY,
+
+    /**
+     * Written to a local file: the result carries its "fs@" path.
+     */
+    LOCAL_FILE,
+
+    /**
+     * Streamed to the document repository (e.g. S3): the result carries the repository path.
+     */
+    REPOSITORY
+}
@@ -0,0 +1,38 @@
+package pe.soapros.document.domain;
+
+import java.io.OutputStream;
+
+/**
+ * A document being streamed to the repository.
+ *
+ * The document is written to {@link #getOutputStream()} while it is generated; the
+ * repository uploads it as data arrives, so generation and upload overlap and no local
+ * file is needed. Exactly one of {@link #complete()} or {@link #abort()} must be called.
+ */
+public interface DocumentUpload {
+
+    /**
+     * Gets the stream receiving the document. Closing it does not complete the upload.
+     *
+     * @return the upload stream
+     */
+    OutputStream getOutputStream();
+
+    /**
+     * Finishes the upload once the whole document has been written.
+     *
+     * @return the repository path where the document was saved (e.g., "s3@:bucket/path/file")
+     * @throws pe.soapros.document.domain.exception.DocumentGenerationException if the upload fails
+     */
+    String complete();
+
+    /**
+     * Discards the upload (generation failed), releasing what was already uploaded.
+     */
+    void abort();
+
+    /**
+     * @return number of bytes written to the upload so far
+     */
+    long getSize();
+}
@@ -0,0 +1,78 @@
+package pe.soapros.document.domain;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * In-memory content of a resolved template.
+ * Returned by the template repository so generators can render without touching the filesystem.
+ *
+ * Instances are immutable: the bytes are only exposed through read-only views,
+ * so a single instance can be shared by concurrent requests.
+ */
+public final class TemplateContent {
+
+    private final String uri;
+    private final String localPath;
+    private final byte[] bytes;
+    private final String fingerprint;
+
+    /**
+     * Creates a template content. The byte array is owned by this instance and must not be modified afterwards.
+     *
+     * @param uri the original template URI (e.g., "s3@host:key")
+     * @param localPath the path of the cached file backing this content (may be null)
+     * @param bytes the template bytes
+     * @param fingerprint a content hash uniquely identifying this version of the template
+     */
+    public TemplateContent(String uri, String localPath, byte[] bytes, String fingerprint) {
+        this.uri = uri;
+        this.localPath = localPath;
+        this.bytes = Objects.requireNonNull(bytes, "bytes");
+        this.fingerprint = Objects.requireNonNull(fingerprint, "fingerprint");
+    }
+
+    public String getUri() {
+        return uri;
+    }
+
+    public String getLocalPath() {
+        return localPath;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * @return size of the template in bytes
+     */
+    public int size() {
+        return bytes.length;
+    }
+
+    /**
+     * @return a read-only view over the template bytes
+     */
+    public ByteBuffer asByteBuffer() {
+        return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+    }
+
+    /**
+     * @return a new stream over the template bytes (no copy)
+     */
+    public InputStream openStream() {
+        return new ByteArrayInputStream(bytes);
+    }
+
+    @Override
+    public String toString() {
+        return "TemplateContent{" +
+               "uri='" + uri + '\'' +
+               ", size=" + bytes.length +
+               ", fingerprint='" + fingerprint + '\'' +
+               '}';
+    }
+}
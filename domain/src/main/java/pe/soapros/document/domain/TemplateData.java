@@ -0,0 +1,35 @@
+package pe.soapros.document.domain;
+
+import java.util.Map;
+
+/**
+ * Template data kept in its original representation (e.g. the parsed JSON of a message).
+ *
+ * Generators that understand the representation read it directly; the others ask for a Map,
+ * which is only materialized on demand. The fingerprint identifies the content, so requests
+ * can be compared without walking the data, and the size lets schedulers estimate the cost
+ * of a document without materializing it.
+ */
+public interface TemplateData {
+
+    /**
+     * Gets the data as a Map (materialized or wrapped on first call).
+     *
+     * @return the data as nested maps, lists and scalars
+     */
+    Map<String, Object> asMap();
+
+    /**
+     * Gets a fingerprint of the content, computed once.
+     *
+     * @return a string that is equal for equal contents
+     */
+    String fingerprint();
+
+    /**
+     * Gets the size of the content in its original representation, computed once.
+     *
+     * @return size in bytes
+     */
+    long size();
+}
@@ -5,4 +5,14 @@ import java.io.File;
 public interface TemplateRepository {
     File getTemplate(String uriFile);
     boolean isLocal (String uriFile);
+
+    /**
+     * Gets the content of a template, served from memory when possible.
+     * Generators should prefer this over {@link #getTemplate(String)} on the hot path.
+     *
+     * @param uriFile the template URI
+     * @return the template content with its fingerprint
+     * @throws pe.soapros.document.domain.exception.TemplateNotFoundException if the template cannot be resolved
+     */
+    TemplateContent getTemplateContent(String uriFile);
 }
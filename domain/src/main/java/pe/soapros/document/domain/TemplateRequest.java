@@ -13,9 +13,13 @@ import java.util.Objects;
 public class TemplateRequest {
     private String templatePath;
     private Map<String, Object> data;
+    private TemplateData templateData;
     private Map<String, String> images;
     private boolean isPersist;
     private String fileType;
+    private TemplateContent resolvedTemplate;
+    private DocumentSink sink;
+    private long deadline;
 
     /**
      * Sets the template path with security validation.
@@ -30,6 +34,39 @@ public class TemplateRequest {
         this.isPersist = false;
     }
 
+    /**
+     * Gets the template data as a Map, materializing it from the raw template data on first call.
+     *
+     * @return the template data, or null if none was set
+     */
+    public Map<String, Object> getData() {
+        if (data == null && templateData != null) {
+            data = templateData.asMap();
+        }
+        return data;
+    }
+
+    /**
+     * Sets the template data as a Map (discards any raw template data).
+     *
+     * @param data the template data
+     */
+    public void setData(Map<String, Object> data) {
+        this.data = data;
+        this.templateData = null;
+    }
+
+    /**
+     * Sets the template data in its original representation; the Map view is only built if
+     * a generator asks for it through {@link #getData()}.
+     *
+     * @param templateData the raw template data
+     */
+    public void setTemplateData(TemplateData templateData) {
+        this.templateData = templateData;
+        this.data = null;
+    }
+
     /**
      * Sets the resolved template path without validation.
      * This is used internally by the application layer after resolving/caching templates.
@@ -41,6 +78,42 @@ public class TemplateRequest {
         this.templatePath = resolvedPath;
     }
 
+    /**
+     * Sets the resolved template content, so generators can render from memory.
+     * The template path is updated to the cached file backing the content, if any.
+     * Only call this method from trusted internal code (e.g., UseCases).
+     *
+     * @param resolvedTemplate the template content served by the template repository
+     */
+    public void setResolvedTemplate(TemplateContent resolvedTemplate) {
+        this.resolvedTemplate = resolvedTemplate;
+        if (resolvedTemplate != null && resolvedTemplate.getLocalPath() != null) {
+            this.templatePath = resolvedTemplate.getLocalPath();
+        }
+    }
+
+    /**
+     * Gets where the generated document must be written.
+     * Without an explicit sink, persisted documents go to the repository and the others to a local file.
+     *
+     * @return the effective sink
+     */
+    public DocumentSink resolveSink() {
+        if (sink != null) {
+            return sink;
+        }
+        return isPersist ? DocumentSink.REPOSITORY : DocumentSink.LOCAL_FILE;
+    }
+
+    /**
+     * Checks whether the deadline of the request (epoch millis, 0 = none) has passed.
+     *
+     * @return true if the document must not be generated anymore
+     */
+    public boolean isExpired() {
+        return deadline > 0 && System.currentTimeMillis() >= deadline;
+    }
+
     /**
      * Validates that the template path is safe and doesn't contain dangerous patterns.
      * Allows:
@@ -88,22 +161,30 @@ public class TemplateRequest {
         if (o == null || getClass() != o.getClass()) return false;
         TemplateRequest that = (TemplateRequest) o;
         return Objects.equals(templatePath, that.templatePath) &&
-               Objects.equals(data, that.data) &&
+               Objects.equals(dataIdentity(), that.dataIdentity()) &&
                Objects.equals(images, that.images);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(templatePath, data, images);
+        return Objects.hash(templatePath, dataIdentity(), images);
+    }
+
+    /**
+     * Raw template data is compared by its cached fingerprint instead of walking the whole content.
+     */
+    private Object dataIdentity() {
+        return templateData != null ? templateData.fingerprint() : data;
     }
 
     @Override
     public String toString() {
         return "TemplateRequest{" +
                "templatePath='" + templatePath + '\'' +
-               ", dataKeys=" + (data != null ? data.keySet() : "null") +
+               ", dataKeys=" + (getData() != null ? getData().keySet() : "null") +
                ", imageKeys=" + (images != null ? images.keySet() : "null") +
                ", isPersist=" +  isPersist +
+               ", sink=" + sink +
                '}';
     }
 }
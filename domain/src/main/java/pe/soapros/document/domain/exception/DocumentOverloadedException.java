@@ -0,0 +1,22 @@
+package pe.soapros.document.domain.exception;
+
+/**
+ * Exception thrown when a document is not admitted for generation because the service is
+ * at capacity (e.g. not enough memory for it right now). The request can be retried later.
+ */
+public class DocumentOverloadedException extends DocumentGenerationException {
+
+    private final long retryAfterMs;
+
+    public DocumentOverloadedException(String message, long retryAfterMs) {
+        super(message);
+        this.retryAfterMs = retryAfterMs;
+    }
+
+    /**
+     * @return suggested delay before retrying, in milliseconds
+     */
+    public long getRetryAfterMs() {
+        return retryAfterMs;
+    }
+}
@@ -0,0 +1,16 @@
+package pe.soapros.document.domain.exception;
+
+/**
+ * Exception thrown when a document is not generated before its deadline.
+ * Partial output of the document is discarded.
+ */
+public class DocumentTimeoutException extends DocumentGenerationException {
+
+    public DocumentTimeoutException(String message) {
+        super(message);
+    }
+
+    public DocumentTimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
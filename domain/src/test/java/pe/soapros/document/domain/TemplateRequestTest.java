@@ -122,4 +122,43 @@ class TemplateRequestTest {
         // Assert
         assertEquals(images, request.getImages());
     }
+
+    @Test
+    void shouldMaterializeTemplateDataOnlyWhenRequested() {
+        // Arrange
+        int[] materializations = {0};
+        TemplateData templateData = new TemplateData() {
+            @Override
+            public Map<String, Object> asMap() {
+                materializations[0]++;
+                return Map.of("name", "John Doe");
+            }
+
+            @Override
+            public String fingerprint() {
+                return "abc";
+            }
+
+            @Override
+            public long size() {
+                return 20;
+            }
+        };
+        TemplateRequest request = new TemplateRequest();
+        request.setTemplatePath("plantilla.docx");
+        request.setTemplateData(templateData);
+
+        TemplateRequest same = new TemplateRequest();
+        same.setTemplatePath("plantilla.docx");
+        same.setTemplateData(templateData);
+
+        // Act & Assert
+        assertEquals(request, same);
+        assertEquals(request.hashCode(), same.hashCode());
+        assertEquals(0, materializations[0]);
+
+        assertEquals("John Doe", request.getData().get("name"));
+        request.getData();
+        assertEquals(1, materializations[0]);
+    }
 }
@@ -55,6 +55,29 @@ public class DomainExceptionMapper implements ExceptionMapper<DocumentGeneration
                     .build();
         }
 
+        if (exception instanceof DocumentOverloadedException overloaded) {
+            return Response
+                    .status(Response.Status.SERVICE_UNAVAILABLE)
+                    .header("Retry-After", Math.max(1, (overloaded.getRetryAfterMs() + 999) / 1000))
+                    .entity(createErrorResponse(
+                            "SERVICE_OVERLOADED",
+                            exception.getMessage(),
+                            Response.Status.SERVICE_UNAVAILABLE.getStatusCode()
+                    ))
+                    .build();
+        }
+
+        if (exception instanceof DocumentTimeoutException) {
+            return Response
+                    .status(Response.Status.GATEWAY_TIMEOUT)
+                    .entity(createErrorResponse(
+                            "DOCUMENT_TIMEOUT",
+                            "The document could not be generated within its deadline.",
+                            Response.Status.GATEWAY_TIMEOUT.getStatusCode()
+                    ))
+                    .build();
+        }
+
         if (exception instanceof TemplateProcessingException) {
             return Response
                     .status(Response.Status.INTERNAL_SERVER_ERROR)
@@ -0,0 +1,217 @@
+package pe.soapros.document.infrastructure.generation;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import lombok.extern.jbosslog.JBossLog;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import pe.soapros.document.domain.DocumentFormat;
+import pe.soapros.document.domain.TemplateRequest;
+import pe.soapros.document.domain.exception.DocumentGenerationException;
+import pe.soapros.document.domain.exception.DocumentOverloadedException;
+import pe.soapros.document.infrastructure.util.LogSanitizer;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Memory-aware admission of documents to rendering.
+ *
+ * Before a document is rendered its heap cost is estimated from its inputs:
+ *   cost = base(format) + expansion-factor * (template bytes + data bytes + image bytes)
+ * and the document is admitted only while
+ *   used heap + reserved + cost <= heap-watermark * max heap
+ * A reservation is the projected peak of a document, which has usually allocated little of
+ * it yet, and used heap also holds what belongs to no document (template and report caches,
+ * baseline), so both are counted. The reservation is released when the document has been
+ * written. Documents that do not fit wait (checking again as reservations are released and
+ * as GC frees memory) for up to max-wait-ms, and are then rejected with a retryable
+ * {@link DocumentOverloadedException}.
+ *
+ * A document is always admitted when nothing else is reserved, so a single document bigger
+ * than the watermark still runs (alone) instead of being rejected forever.
+ *
+ * Configuration:
+ * - app.generation.admission.enabled: turns admission control on/off
+ * - app.generation.admission.heap-watermark: fraction of the max heap that may be used
+ * - app.generation.admission.max-wait-ms: how long a document may wait before being shed
+ * - app.generation.admission.pdf-base-bytes / html-base-bytes / txt-base-bytes: fixed cost per format
+ * - app.generation.admission.expansion-factor: heap bytes per input byte
+ */
+@ApplicationScoped
+@JBossLog
+public class AdmissionController {
+
+    private static final long RECHECK_INTERVAL_MS = 50;
+
+    @ConfigProperty(name = "app.generation.admission.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "app.generation.admission.heap-watermark", defaultValue = "0.75")
+    double heapWatermark;
+
+    @ConfigProperty(name = "app.generation.admission.max-wait-ms", defaultValue = "2000")
+    long maxWaitMs;
+
+    @ConfigProperty(name = "app.generation.admission.pdf-base-bytes", defaultValue = "33554432")
+    long pdfBaseBytes;
+
+    @ConfigProperty(name = "app.generation.admission.html-base-bytes", defaultValue = "2097152")
+    long htmlBaseBytes;
+
+    @ConfigProperty(name = "app.generation.admission.txt-base-bytes", defaultValue = "1048576")
+    long txtBaseBytes;
+
+    @ConfigProperty(name = "app.generation.admission.expansion-factor", defaultValue = "10")
+    long expansionFactor;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private long reserved;
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder delayed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * Waits until the estimated cost of the document fits under the heap watermark.
+     * Uses a ReentrantLock (not synchronized) so that waiting virtual threads do not pin their carrier.
+     *
+     * @param request the prepared request (template resolved)
+     * @return the reservation, to be closed when the document has been written
+     * @throws DocumentOverloadedException if the document does not fit within max-wait-ms
+     */
+    public Reservation admit(TemplateRequest request) {
+        if (!enabled) {
+            return new Reservation(0);
+        }
+
+        long cost = estimateCost(request);
+        long limit = (long) (Runtime.getRuntime().maxMemory() * heapWatermark);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        boolean waited = false;
+
+        lock.lock();
+        try {
+            while (reserved > 0 && usedHeap() + reserved + cost > limit) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    rejected.increment();
+                    log.warnf("Document rejected by admission control: template %s, estimated %s, reserved %s",
+                            LogSanitizer.sanitizeTemplatePath(request.getTemplatePath()),
+                            LogSanitizer.sanitizeByteCount(cost), LogSanitizer.sanitizeByteCount(reserved));
+                    throw new DocumentOverloadedException(
+                            "Not enough memory to render the document now, retry later", maxWaitMs);
+                }
+                waited = true;
+                // Used heap also drops on GC, which is not signalled: check again periodically
+                released.await(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(RECHECK_INTERVAL_MS)),
+                        TimeUnit.NANOSECONDS);
+            }
+            reserved += cost;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DocumentGenerationException("Interrupted while waiting for admission", e);
+        } finally {
+            lock.unlock();
+        }
+
+        admitted.increment();
+        if (waited) {
+            delayed.increment();
+        }
+        return new Reservation(cost);
+    }
+
+    /**
+     * Estimates the heap needed to render a document.
+     *
+     * @param request the request
+     * @return estimated bytes
+     */
+    long estimateCost(TemplateRequest request) {
+        long base = switch (DocumentFormat.fromString(request.getFileType())) {
+            case PDF -> pdfBaseBytes;
+            case HTML -> htmlBaseBytes;
+            case TXT -> txtBaseBytes;
+        };
+        long inputBytes = templateBytes(request) + RenderCostModel.inputBytes(request);
+        return base + expansionFactor * inputBytes;
+    }
+
+    private static long templateBytes(TemplateRequest request) {
+        if (request.getResolvedTemplate() != null) {
+            return request.getResolvedTemplate().size();
+        }
+        return request.getTemplatePath() != null ? new File(request.getTemplatePath()).length() : 0;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private void release(long cost) {
+        lock.lock();
+        try {
+            reserved -= cost;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return bytes currently reserved by admitted documents
+     */
+    public long getReservedBytes() {
+        lock.lock();
+        try {
+            return reserved;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of admitted documents
+     */
+    public long getAdmittedCount() {
+        return admitted.sum();
+    }
+
+    /**
+     * @return number of admitted documents that had to wait
+     */
+    public long getDelayedCount() {
+        return delayed.sum();
+    }
+
+    /**
+     * @return number of documents rejected as overloaded
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Memory reserved for an admitted document. Closing it more than once has no effect.
+     */
+    public final class Reservation implements AutoCloseable {
+        private final long cost;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Reservation(long cost) {
+            this.cost = cost;
+        }
+
+        @Override
+        public void close() {
+            if (cost > 0 && closed.compareAndSet(false, true)) {
+                release(cost);
+            }
+        }
+    }
+}
@@ -0,0 +1,502 @@
+package pe.soapros.document.infrastructure.generation;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.jbosslog.JBossLog;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import pe.soapros.document.application.GenerateDocumentUseCase;
+import pe.soapros.document.domain.DocumentFormat;
+import pe.soapros.document.domain.TemplateRequest;
+import pe.soapros.document.domain.exception.DocumentGenerationException;
+import pe.soapros.document.domain.exception.DocumentTimeoutException;
+import pe.soapros.document.infrastructure.util.LogSanitizer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Executors for document generation, replacing parallel streams on the common ForkJoinPool.
+ *
+ * - CPU pool: fixed number of platform threads for template rendering and conversion
+ *   (app.generation.executor.cpu-threads, 0 = number of processors). Tasks on this pool
+ *   never wait for other tasks, so nested fan-out cannot deadlock it. Queued tasks run
+ *   highest priority first (e.g. the estimated cost of their message, so the longest work
+ *   starts first and does not end up alone at the tail of the batch), FIFO within a priority.
+ * - I/O executor: one virtual thread per task, for blocking work (template downloads,
+ *   message orchestration, Kafka sends). Uploads of streamed documents already run on the
+ *   document repository's own virtual threads.
+ *
+ * Renders submitted through {@link #generateAll} also hold a {@link RenderLimiter} permit,
+ * which bounds in-flight documents per format across every message and batch (and hands out
+ * the slots by the same priority as the CPU queue), and an
+ * {@link AdmissionController} reservation, which keeps the projected heap under its watermark.
+ *
+ * Every render has a deadline: app.generation.deadline.document-ms from the moment it starts
+ * (0 = none), or the deadline already set on the request (e.g. the end of the batch) if earlier.
+ * When it passes, the watchdog interrupts the render thread and fails the document with a
+ * {@link DocumentTimeoutException}; the render stops at its next write (see the use case) or
+ * at the next item it reads from the template data (see {@code JsonTemplateModels}) and
+ * discards its partial output. A render that does neither nor checks for interruption keeps
+ * its thread until it ends, but its caller is not kept waiting.
+ *
+ * Batch methods wait for every document to complete before returning and preserve the order
+ * of the input list. A document completes when its render ends or, if it times out, when its
+ * deadline passes: a timed-out render may still be running after the failure is reported,
+ * until its next write or data read stops it and its partial output is discarded.
+ */
+@ApplicationScoped
+@JBossLog
+public class GenerationScheduler {
+
+    @Inject
+    GenerateDocumentUseCase generateDocumentUseCase;
+
+    @Inject
+    RenderLimiter renderLimiter;
+
+    @Inject
+    AdmissionController admissionController;
+
+    @Inject
+    RenderCostModel renderCostModel;
+
+    @ConfigProperty(name = "app.generation.executor.cpu-threads", defaultValue = "0")
+    int cpuThreads;
+
+    @ConfigProperty(name = "app.generation.deadline.document-ms", defaultValue = "120000")
+    long documentDeadlineMs;
+
+    private ThreadPoolExecutor cpuPool;
+    private ExecutorService ioExecutor;
+    private ScheduledExecutorService watchdog;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        int threads = cpuThreads > 0 ? cpuThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        cpuPool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "generation-cpu-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        ioExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("generation-io-", 0).factory());
+        watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "generation-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.infof("Generation scheduler initialized (cpu threads: %d, io: virtual threads)", threads);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        cpuPool.shutdownNow();
+        ioExecutor.shutdownNow();
+        watchdog.shutdownNow();
+    }
+
+    /**
+     * @return executor for blocking I/O (virtual threads)
+     */
+    public Executor ioExecutor() {
+        return ioExecutor;
+    }
+
+    /**
+     * Describes the current generation load, for the batch logs: CPU queue, renders in flight per
+     * format, permit waits, reserved memory and admission outcomes.
+     *
+     * @return a one-line summary
+     */
+    public String describeLoad() {
+        return String.format("cpu queue: %d, in flight pdf/html/txt: %d/%d/%d, permit waits: %d, "
+                        + "reserved: %s, admitted: %d (delayed %d, rejected %d)",
+                cpuPool.getQueue().size(),
+                renderLimiter.getInFlight(DocumentFormat.PDF),
+                renderLimiter.getInFlight(DocumentFormat.HTML),
+                renderLimiter.getInFlight(DocumentFormat.TXT),
+                renderLimiter.getWaitCount(),
+                LogSanitizer.sanitizeByteCount(admissionController.getReservedBytes()),
+                admissionController.getAdmittedCount(),
+                admissionController.getDelayedCount(),
+                admissionController.getRejectedCount());
+    }
+
+    /**
+     * Applies a blocking function to every item on the I/O executor.
+     *
+     * @param items the items
+     * @param task the function (may block)
+     * @return results in the order of the items
+     */
+    public <T, R> List<R> mapAll(List<T> items, Function<? super T, ? extends R> task) {
+        List<CompletableFuture<R>> futures = new ArrayList<>(items.size());
+        for (T item : items) {
+            futures.add(CompletableFuture.supplyAsync(() -> task.apply(item), ioExecutor));
+        }
+        return joinAll(futures);
+    }
+
+    /**
+     * Generates documents in two stages: on the I/O executor the template is resolved
+     * ({@link GenerateDocumentUseCase#prepare}), then a render permit of the document format
+     * and an admission reservation are taken; the render itself runs on the CPU pool and
+     * releases both when it ends.
+     *
+     * @param templates the requests
+     * @param render renders a prepared request (e.g. calls the use case with a file name)
+     * @return results in the order of the requests
+     * @throws RuntimeException the first failure (in request order) once every task has finished
+     */
+    public <R> List<R> generateAll(List<TemplateRequest> templates, Function<TemplateRequest, ? extends R> render) {
+        return joinAll(submitAll(templates, render, 0));
+    }
+
+    /**
+     * Same as {@link #generateAll(List, Function)}, with a priority for the render permits and the
+     * CPU pool (see {@link RenderLimiter}), returning one future per request so that the caller decides how to handle each failure.
+     * Render times feed the {@link RenderCostModel}.
+     *
+     * @param templates the requests
+     * @param render renders a prepared request
+     * @param priority render permit and CPU queue priority (higher runs first)
+     * @return one future per request, in the order of the requests
+     */
+    public <R> List<CompletableFuture<R>> submitAll(List<TemplateRequest> templates,
+                                                   Function<TemplateRequest, ? extends R> render, long priority) {
+        List<CompletableFuture<R>> futures = new ArrayList<>(templates.size());
+        for (TemplateRequest template : templates) {
+            CompletableFuture<R> result = new CompletableFuture<>();
+            futures.add(result);
+            CompletableFuture.supplyAsync(() -> admit(template, priority), ioExecutor)
+                    .whenComplete((slot, error) -> {
+                        if (error != null) {
+                            result.completeExceptionally(error);
+                            return;
+                        }
+                        try {
+                            executeCpu(priority, () -> runRender(template, slot, render, result));
+                        } catch (RuntimeException e) {
+                            // CPU pool shut down
+                            slot.close();
+                            result.completeExceptionally(e);
+                        }
+                    });
+        }
+        return futures;
+    }
+
+    /**
+     * Generates documents grouped by template for cache locality (compiled reports, fonts, images).
+     *
+     * Requests are bucketed by group key and buckets are queued largest first. Each group worker
+     * takes a whole bucket and renders it sequentially; a worker with no bucket left steals
+     * single requests from the tail of the bucket with most pending work, so one large bucket
+     * does not leave the other workers idle. There are as many workers as CPU threads, but they
+     * run on the I/O executor: a worker resolves the template (it should already be resolved by
+     * the batch prefetch), waits for the render permit and admission, and only then hands the
+     * render to the CPU pool and waits for it. CPU threads therefore never block, and grouped
+     * renders share the CPU queue with the other renders instead of holding every CPU thread.
+     *
+     * @param templates the requests
+     * @param groupKey bucket of a request (e.g. template fingerprint)
+     * @param render renders a prepared request
+     * @return one future per request, in the order of the requests
+     */
+    public <R> List<CompletableFuture<R>> generateGrouped(List<TemplateRequest> templates,
+                                                         Function<TemplateRequest, String> groupKey,
+                                                         Function<TemplateRequest, ? extends R> render) {
+        List<CompletableFuture<R>> futures = new ArrayList<>(templates.size());
+        Map<String, Deque<GroupedTask<R>>> buckets = new LinkedHashMap<>();
+        for (TemplateRequest template : templates) {
+            CompletableFuture<R> future = new CompletableFuture<>();
+            futures.add(future);
+            buckets.computeIfAbsent(groupKey.apply(template), key -> new ConcurrentLinkedDeque<>())
+                    .add(new GroupedTask<>(template, future));
+        }
+        if (templates.isEmpty()) {
+            return futures;
+        }
+
+        List<Deque<GroupedTask<R>>> all = new ArrayList<>(buckets.values());
+        all.sort(Comparator.comparingInt((Deque<GroupedTask<R>> bucket) -> bucket.size()).reversed());
+        Queue<Deque<GroupedTask<R>>> unclaimed = new ConcurrentLinkedQueue<>(all);
+
+        int workers = Math.min(cpuPool.getMaximumPoolSize(), templates.size());
+        for (int i = 0; i < workers; i++) {
+            ioExecutor.execute(() -> runGroupWorker(unclaimed, all, render));
+        }
+        return futures;
+    }
+
+    private <R> void runGroupWorker(Queue<Deque<GroupedTask<R>>> unclaimed, List<Deque<GroupedTask<R>>> all,
+                                    Function<TemplateRequest, ? extends R> render) {
+        Deque<GroupedTask<R>> own = unclaimed.poll();
+        while (true) {
+            GroupedTask<R> task = own != null ? own.pollFirst() : null;
+            if (task == null) {
+                own = unclaimed.poll();
+                if (own != null) {
+                    continue;
+                }
+                task = steal(all);
+                if (task == null) {
+                    return;
+                }
+            }
+            runGrouped(task, render);
+        }
+    }
+
+    private static <R> GroupedTask<R> steal(List<Deque<GroupedTask<R>>> all) {
+        while (true) {
+            Deque<GroupedTask<R>> victim = null;
+            int most = 0;
+            for (Deque<GroupedTask<R>> bucket : all) {
+                int pending = bucket.size();
+                if (pending > most) {
+                    most = pending;
+                    victim = bucket;
+                }
+            }
+            if (victim == null) {
+                return null;
+            }
+            GroupedTask<R> task = victim.pollLast();
+            if (task != null) {
+                return task;
+            }
+            // Drained meanwhile by its owner: look again
+        }
+    }
+
+    /**
+     * Admits a grouped request on the current (I/O) thread, renders it on the CPU pool and waits
+     * until its future completes, so that the worker renders its bucket one request at a time.
+     */
+    private <R> void runGrouped(GroupedTask<R> task, Function<TemplateRequest, ? extends R> render) {
+        CompletableFuture<R> result = task.future();
+        RenderSlot slot;
+        try {
+            slot = admit(task.template(), 0);
+        } catch (Throwable e) {
+            result.completeExceptionally(e);
+            return;
+        }
+        try {
+            executeCpu(0, () -> runRender(task.template(), slot, render, result));
+        } catch (RuntimeException e) {
+            // CPU pool shut down
+            slot.close();
+            result.completeExceptionally(e);
+            return;
+        }
+        // A timed-out render completes its future at the deadline: the worker moves on meanwhile
+        result.handle((value, error) -> null).join();
+    }
+
+    /**
+     * Renders a request on the current (CPU) thread under its deadline, releases its slot and then
+     * completes its future, so that whoever joins the future finds the slot already released.
+     * A timed-out render has its future completed at the deadline and keeps the slot until it stops.
+     */
+    private <R> void runRender(TemplateRequest template, RenderSlot slot,
+                               Function<TemplateRequest, ? extends R> render, CompletableFuture<R> result) {
+        long now = System.currentTimeMillis();
+        long deadline = template.getDeadline();
+        if (documentDeadlineMs > 0) {
+            deadline = deadline > 0 ? Math.min(deadline, now + documentDeadlineMs) : now + documentDeadlineMs;
+        }
+        template.setDeadline(deadline);
+
+        RenderWatch watch = new RenderWatch(Thread.currentThread());
+        ScheduledFuture<?> alarm = deadline <= 0 ? null : watchdog.schedule(() -> {
+            if (watch.expire()) {
+                log.warnf("Document deadline exceeded, cancelling render: %s",
+                        LogSanitizer.sanitizeTemplatePath(template.getTemplatePath()));
+                result.completeExceptionally(timeout(template, null));
+            }
+        }, Math.max(0, deadline - now), TimeUnit.MILLISECONDS);
+
+        R value = null;
+        Throwable failure = null;
+        try {
+            value = renderTimed(template, render);
+        } catch (Throwable e) {
+            // Whatever the generator wrapped it in, a render stopped by its deadline is a timeout
+            failure = watch.isExpired() || template.isExpired() ? timeout(template, e) : e;
+        } finally {
+            if (alarm != null) {
+                alarm.cancel(false);
+            }
+            watch.finish();
+            // Clear an interrupt aimed at this render before the thread takes the next task
+            Thread.interrupted();
+            slot.close();
+        }
+        if (failure != null) {
+            result.completeExceptionally(failure);
+        } else {
+            result.complete(value);
+        }
+    }
+
+    private static DocumentTimeoutException timeout(TemplateRequest template, Throwable cause) {
+        if (cause instanceof DocumentTimeoutException timeout) {
+            return timeout;
+        }
+        return new DocumentTimeoutException("Document deadline exceeded: " + template.getTemplatePath(), cause);
+    }
+
+    private <R> R renderTimed(TemplateRequest template, Function<TemplateRequest, ? extends R> render) {
+        long start = System.nanoTime();
+        R result = render.apply(template);
+        renderCostModel.record(template, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return result;
+    }
+
+    private void executeCpu(long priority, Runnable task) {
+        cpuPool.execute(new PrioritizedTask(priority, sequence.getAndIncrement(), task));
+    }
+
+    private RenderSlot admit(TemplateRequest template, long priority) {
+        generateDocumentUseCase.prepare(template);
+        RenderLimiter.Permit permit = renderLimiter.acquire(DocumentFormat.fromString(template.getFileType()), priority);
+        try {
+            return new RenderSlot(permit, admissionController.admit(template));
+        } catch (RuntimeException e) {
+            permit.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for every future and returns their results in order.
+     *
+     * @param futures the futures
+     * @return results in the order of the futures
+     * @throws RuntimeException the first failure (in order) once every future has completed
+     */
+    public static <R> List<R> joinAll(List<CompletableFuture<R>> futures) {
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get();
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new DocumentGenerationException("Interrupted while waiting for document generation", e);
+        } catch (ExecutionException e) {
+            // Reported below, in item order
+        }
+
+        List<R> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<R> future : futures) {
+            try {
+                results.add(future.join());
+            } catch (CompletionException e) {
+                throw unwrap(e);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * CPU pool task: higher priority first, then submission order.
+     */
+    private record PrioritizedTask(long priority, long sequence, Runnable task)
+            implements Runnable, Comparable<PrioritizedTask> {
+        @Override
+        public void run() {
+            task.run();
+        }
+
+        @Override
+        public int compareTo(PrioritizedTask other) {
+            int byPriority = Long.compare(other.priority, priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /**
+     * Guards the interrupt of a render thread so that it never hits the thread once the render is over.
+     */
+    private static final class RenderWatch {
+        private final Thread thread;
+        private boolean finished;
+        private boolean expired;
+
+        RenderWatch(Thread thread) {
+            this.thread = thread;
+        }
+
+        synchronized boolean expire() {
+            if (finished) {
+                return false;
+            }
+            expired = true;
+            thread.interrupt();
+            return true;
+        }
+
+        synchronized boolean isExpired() {
+            return expired;
+        }
+
+        synchronized void finish() {
+            finished = true;
+        }
+    }
+
+    /**
+     * Request waiting in a template bucket, with the future of its result.
+     */
+    private record GroupedTask<R>(TemplateRequest template, CompletableFuture<R> future) {
+    }
+
+    /**
+     * Render permit and memory reservation held by a document while it is rendered.
+     */
+    private record RenderSlot(RenderLimiter.Permit permit, AdmissionController.Reservation reservation)
+            implements AutoCloseable {
+        @Override
+        public void close() {
+            reservation.close();
+            permit.close();
+        }
+    }
+
+    private static RuntimeException unwrap(CompletionException e) {
+        Throwable cause = e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new DocumentGenerationException(cause.getMessage(), cause);
+    }
+}
@@ -0,0 +1,143 @@
+package pe.soapros.document.infrastructure.generation;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import pe.soapros.document.domain.DocumentFormat;
+import pe.soapros.document.domain.TemplateContent;
+import pe.soapros.document.domain.TemplateRequest;
+import pe.soapros.document.infrastructure.util.BoundedLruCache;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Render time estimates, used to schedule the most expensive work first.
+ *
+ * Every finished render updates the history of its template (exponentially weighted average
+ * of render time and input size). A document of a known template is estimated from that
+ * history, scaled by how its input size compares to the average one; an unknown template
+ * costs a default per format plus its input bytes at a fixed throughput.
+ *
+ * Configuration:
+ * - app.generation.cost.pdf-default-ms / html-default-ms / txt-default-ms: cost of an unknown template
+ * - app.generation.cost.bytes-per-ms: input throughput assumed for unknown templates
+ */
+@ApplicationScoped
+public class RenderCostModel {
+
+    private static final double ALPHA = 0.3;
+    private static final int MAX_TEMPLATES = 1024;
+    private static final int MAX_DATA_DEPTH = 32;
+
+    @ConfigProperty(name = "app.generation.cost.pdf-default-ms", defaultValue = "500")
+    long pdfDefaultMs;
+
+    @ConfigProperty(name = "app.generation.cost.html-default-ms", defaultValue = "20")
+    long htmlDefaultMs;
+
+    @ConfigProperty(name = "app.generation.cost.txt-default-ms", defaultValue = "5")
+    long txtDefaultMs;
+
+    @ConfigProperty(name = "app.generation.cost.bytes-per-ms", defaultValue = "65536")
+    long bytesPerMs;
+
+    private final BoundedLruCache<String, History> history =
+            BoundedLruCache.ofMaxEntries("render-cost-history", MAX_TEMPLATES, null);
+
+    /**
+     * Estimates the render time of a document.
+     *
+     * @param request the request
+     * @return estimated milliseconds
+     */
+    public long estimateMs(TemplateRequest request) {
+        long input = inputBytes(request);
+        History known = history.get(keyOf(request));
+        if (known != null) {
+            double scale = known.inputBytes() > 0 ? input / known.inputBytes() : 1.0;
+            return Math.round(known.renderMs() * Math.max(0.5, Math.min(4.0, scale)));
+        }
+        long base = switch (DocumentFormat.fromString(request.getFileType())) {
+            case PDF -> pdfDefaultMs;
+            case HTML -> htmlDefaultMs;
+            case TXT -> txtDefaultMs;
+        };
+        return base + input / Math.max(1, bytesPerMs);
+    }
+
+    /**
+     * Records the actual render time of a document.
+     *
+     * @param request the rendered request
+     * @param renderMs elapsed milliseconds
+     */
+    public void record(TemplateRequest request, long renderMs) {
+        String key = keyOf(request);
+        long input = inputBytes(request);
+        History previous = history.get(key);
+        if (previous == null) {
+            history.put(key, new History(renderMs, input));
+        } else {
+            history.put(key, new History(
+                    ALPHA * renderMs + (1 - ALPHA) * previous.renderMs(),
+                    ALPHA * input + (1 - ALPHA) * previous.inputBytes()));
+        }
+    }
+
+    /**
+     * Rough size of the inputs of a request: data and images. Raw template data reports its own
+     * size (computed once, without materializing it); a Map is walked (string lengths plus a
+     * fixed overhead per value). The template itself is not included.
+     *
+     * @param request the request
+     * @return estimated bytes
+     */
+    static long inputBytes(TemplateRequest request) {
+        long bytes = request.getTemplateData() != null
+                ? request.getTemplateData().size()
+                : estimateBytes(request.getData(), 0);
+        if (request.getImages() != null) {
+            for (String image : request.getImages().values()) {
+                bytes += image != null ? image.length() : 0;
+            }
+        }
+        return bytes;
+    }
+
+    private static long estimateBytes(Object value, int depth) {
+        if (value == null || depth > MAX_DATA_DEPTH) {
+            return 0;
+        }
+        if (value instanceof CharSequence text) {
+            return 16 + text.length();
+        }
+        if (value instanceof Map<?, ?> map) {
+            long bytes = 32;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                bytes += estimateBytes(entry.getKey(), depth + 1) + estimateBytes(entry.getValue(), depth + 1);
+            }
+            return bytes;
+        }
+        if (value instanceof Collection<?> collection) {
+            long bytes = 32;
+            for (Object item : collection) {
+                bytes += estimateBytes(item, depth + 1);
+            }
+            return bytes;
+        }
+        return 16;
+    }
+
+    /**
+     * History key of a request: its template URI (resolving a template replaces the path of the
+     * request with the cached file, so the path alone differs between estimate and record) and format.
+     */
+    private static String keyOf(TemplateRequest request) {
+        TemplateContent resolved = request.getResolvedTemplate();
+        String template = resolved != null && resolved.getUri() != null ? resolved.getUri() : request.getTemplatePath();
+        return template + "|" + DocumentFormat.fromString(request.getFileType());
+    }
+
+    private record History(double renderMs, double inputBytes) {
+    }
+}
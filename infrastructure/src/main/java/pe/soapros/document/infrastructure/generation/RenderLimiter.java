@@ -0,0 +1,228 @@
+package pe.soapros.document.infrastructure.generation;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import lombok.extern.jbosslog.JBossLog;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import pe.soapros.document.domain.DocumentFormat;
+import pe.soapros.document.domain.exception.DocumentGenerationException;
+
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Global budget of in-flight document renders.
+ *
+ * A batch fans out twice (messages, then the compositions of each message), so without a
+ * global cap the number of documents being rendered at once depends on the batch shape.
+ * Every render holds one permit of its format and one of the total budget from the moment
+ * its template is ready until the document is written, whatever message or batch it
+ * belongs to. Permits are taken by the I/O (virtual) threads, so waiting costs no platform
+ * thread.
+ *
+ * Waiting renders get their permits highest priority first (e.g. the estimated cost of their
+ * message, so the longest work starts first), in arrival order within a priority. Both permits
+ * are granted together, so a render waiting for a busy format never holds a total permit and
+ * never holds back waiting renders of other formats.
+ *
+ * Configuration:
+ * - app.generation.limits.pdf / html / txt: in-flight renders per format
+ * - app.generation.limits.total: in-flight renders across all formats
+ */
+@ApplicationScoped
+@JBossLog
+public class RenderLimiter {
+
+    @ConfigProperty(name = "app.generation.limits.pdf", defaultValue = "4")
+    int pdfPermits;
+
+    @ConfigProperty(name = "app.generation.limits.html", defaultValue = "16")
+    int htmlPermits;
+
+    @ConfigProperty(name = "app.generation.limits.txt", defaultValue = "32")
+    int txtPermits;
+
+    @ConfigProperty(name = "app.generation.limits.total", defaultValue = "32")
+    int totalPermits;
+
+    /**
+     * Uses a ReentrantLock (not synchronized) so that waiting virtual threads do not pin their carrier.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<DocumentFormat, Budget> budgets = new EnumMap<>(DocumentFormat.class);
+    private final NavigableSet<Waiter> waiters = new TreeSet<>(Comparator
+            .comparingLong((Waiter waiter) -> waiter.priority).reversed()
+            .thenComparingLong(waiter -> waiter.sequence));
+    private Budget total;
+    private long sequence;
+
+    private final LongAdder waits = new LongAdder();
+
+    @PostConstruct
+    void init() {
+        budgets.put(DocumentFormat.PDF, new Budget(pdfPermits));
+        budgets.put(DocumentFormat.HTML, new Budget(htmlPermits));
+        budgets.put(DocumentFormat.TXT, new Budget(txtPermits));
+        total = new Budget(totalPermits);
+        log.infof("Render limiter initialized (pdf: %d, html: %d, txt: %d, total: %d)",
+                pdfPermits, htmlPermits, txtPermits, totalPermits);
+    }
+
+    /**
+     * Waits for a render slot of the given format, with no priority.
+     *
+     * @param format the output format
+     * @return the permit, to be closed when the document has been written
+     * @throws DocumentGenerationException if interrupted while waiting
+     */
+    public Permit acquire(DocumentFormat format) {
+        return acquire(format, 0);
+    }
+
+    /**
+     * Waits for a render slot of the given format.
+     *
+     * @param format the output format
+     * @param priority waiting renders with a higher priority get their slot first
+     * @return the permit, to be closed when the document has been written
+     * @throws DocumentGenerationException if interrupted while waiting
+     */
+    public Permit acquire(DocumentFormat format, long priority) {
+        lock.lock();
+        try {
+            Waiter waiter = new Waiter(format, priority, sequence++, lock.newCondition());
+            waiters.add(waiter);
+            dispatch();
+            if (!waiter.granted) {
+                waits.increment();
+                while (!waiter.granted) {
+                    try {
+                        waiter.ready.await();
+                    } catch (InterruptedException e) {
+                        if (waiter.granted) {
+                            release(format);
+                        } else {
+                            waiters.remove(waiter);
+                        }
+                        Thread.currentThread().interrupt();
+                        throw new DocumentGenerationException(
+                                "Interrupted while waiting for a " + format + " render slot", e);
+                    }
+                }
+            }
+            return new Permit(format);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Grants free slots to the waiters, highest priority first. Called with the lock held.
+     */
+    private void dispatch() {
+        Iterator<Waiter> pending = waiters.iterator();
+        while (total.hasRoom() && pending.hasNext()) {
+            Waiter waiter = pending.next();
+            Budget budget = budgets.get(waiter.format);
+            if (budget.hasRoom()) {
+                pending.remove();
+                budget.inFlight++;
+                total.inFlight++;
+                waiter.granted = true;
+                waiter.ready.signal();
+            }
+        }
+    }
+
+    private void release(DocumentFormat format) {
+        lock.lock();
+        try {
+            budgets.get(format).inFlight--;
+            total.inFlight--;
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param format the output format
+     * @return renders of the format currently holding a permit
+     */
+    public int getInFlight(DocumentFormat format) {
+        lock.lock();
+        try {
+            return budgets.get(format).inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of times a render had to wait for a permit
+     */
+    public long getWaitCount() {
+        return waits.sum();
+    }
+
+    /**
+     * A held render slot. Closing it more than once has no effect.
+     */
+    public final class Permit implements AutoCloseable {
+        private final DocumentFormat format;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(DocumentFormat format) {
+            this.format = format;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                release(format);
+            }
+        }
+    }
+
+    /**
+     * Slots of a format (or of all formats). Guarded by the lock.
+     */
+    private static final class Budget {
+        private final int limit;
+        private int inFlight;
+
+        Budget(int limit) {
+            this.limit = Math.max(1, limit);
+        }
+
+        boolean hasRoom() {
+            return inFlight < limit;
+        }
+    }
+
+    /**
+     * A render waiting for its slot. Guarded by the lock.
+     */
+    private static final class Waiter {
+        private final DocumentFormat format;
+        private final long priority;
+        private final long sequence;
+        private final Condition ready;
+        private boolean granted;
+
+        Waiter(DocumentFormat format, long priority, long sequence, Condition ready) {
+            this.format = format;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.ready = ready;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package pe.soapros.document.infrastructure.generation;
+
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import lombok.extern.jbosslog.JBossLog;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import pe.soapros.document.infrastructure.util.LogSanitizer;
+
+import java.io.File;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Cleanup of the documents generated to the local temp directory (LOCAL_FILE sink).
+ *
+ * Generated files are named {ULID}.{extension} under app.generation.temp and their "fs@" path
+ * is returned to the caller (REST response or output topic), so they cannot be deleted right
+ * away. The janitor deletes them once they are older than the retention period, giving the
+ * consumer time to read them. Only ULID-named files are touched: anything else in the
+ * directory is left alone.
+ *
+ * Configuration:
+ * - app.generation.temp.cleanup.enabled: turns the janitor on/off
+ * - app.generation.temp.cleanup.retention-seconds: age after which a generated file is deleted
+ * - app.generation.temp.cleanup.interval-seconds: period between cleanups
+ */
+@ApplicationScoped
+@JBossLog
+public class TempOutputJanitor {
+
+    private static final Pattern GENERATED_FILE = Pattern.compile("^[0-9A-HJKMNP-TV-Z]{26}\\.\\w+$");
+
+    @ConfigProperty(name = "app.generation.temp", defaultValue = "/temp")
+    String tempDirectory;
+
+    @ConfigProperty(name = "app.generation.temp.cleanup.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "app.generation.temp.cleanup.retention-seconds", defaultValue = "900")
+    long retentionSeconds;
+
+    @ConfigProperty(name = "app.generation.temp.cleanup.interval-seconds", defaultValue = "300")
+    long intervalSeconds;
+
+    private ScheduledExecutorService scheduler;
+
+    void onStart(@Observes StartupEvent event) {
+        if (!enabled) {
+            log.info("Temp output janitor disabled");
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "temp-output-janitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::cleanup, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        log.infof("Temp output janitor started (retention: %ds, interval: %ds)", retentionSeconds, intervalSeconds);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Deletes the generated files older than the retention period.
+     *
+     * @return number of deleted files
+     */
+    int cleanup() {
+        try {
+            File[] files = new File(tempDirectory).listFiles(
+                    (dir, name) -> GENERATED_FILE.matcher(name).matches());
+            if (files == null) {
+                return 0;
+            }
+
+            long expiredBefore = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(retentionSeconds);
+            int deleted = 0;
+            for (File file : files) {
+                if (file.isFile() && file.lastModified() < expiredBefore && file.delete()) {
+                    deleted++;
+                }
+            }
+            if (deleted > 0) {
+                log.infof("Temp output janitor deleted %d generated file(s) from %s",
+                        deleted, LogSanitizer.sanitizePath(tempDirectory));
+            }
+            return deleted;
+        } catch (Exception e) {
+            // Never let an exception cancel the periodic task
+            log.errorf(e, "Temp output cleanup failed");
+            return 0;
+        }
+    }
+}
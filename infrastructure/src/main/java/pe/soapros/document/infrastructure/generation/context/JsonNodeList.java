@@ -0,0 +1,38 @@
+package pe.soapros.document.infrastructure.generation.context;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * Read-only {@code List} view of a JSON array (see {@link JsonNodeMap}).
+ */
+public final class JsonNodeList extends AbstractList<Object> implements RandomAccess {
+
+    private final ArrayNode node;
+
+    public JsonNodeList(ArrayNode node) {
+        this.node = node;
+    }
+
+    /**
+     * @return the underlying JSON array
+     */
+    public ArrayNode node() {
+        return node;
+    }
+
+    @Override
+    public Object get(int index) {
+        if (index < 0 || index >= node.size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + node.size());
+        }
+        return JsonValues.toJava(node.get(index));
+    }
+
+    @Override
+    public int size() {
+        return node.size();
+    }
+}
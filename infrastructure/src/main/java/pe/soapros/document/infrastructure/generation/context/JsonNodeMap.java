@@ -0,0 +1,85 @@
+package pe.soapros.document.infrastructure.generation.context;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read-only {@code Map} view of a JSON object.
+ *
+ * Values are resolved from the underlying node on access, with the same Java types that
+ * {@code ObjectMapper.convertValue(node, Map.class)} would produce (String, Integer/Long/Double...,
+ * Boolean, null), except that nested objects and arrays are views too: no intermediate maps or
+ * lists are ever built. Mustache resolves fields and iterates sections over these views like
+ * over any Map/List.
+ *
+ * Generators that know about JSON (Freemarker, see {@link JsonTemplateModels}) read
+ * {@link #node()} directly.
+ */
+public final class JsonNodeMap extends AbstractMap<String, Object> {
+
+    private final ObjectNode node;
+
+    public JsonNodeMap(ObjectNode node) {
+        this.node = node;
+    }
+
+    /**
+     * @return the underlying JSON object
+     */
+    public ObjectNode node() {
+        return node;
+    }
+
+    @Override
+    public Object get(Object key) {
+        return key instanceof String name ? JsonValues.toJava(node.get(name)) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String name && node.has(name);
+    }
+
+    @Override
+    public int size() {
+        return node.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return node.isEmpty();
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return fields.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+                        Map.Entry<String, JsonNode> field = fields.next();
+                        return new SimpleImmutableEntry<>(field.getKey(), JsonValues.toJava(field.getValue()));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return node.size();
+            }
+        };
+    }
+}
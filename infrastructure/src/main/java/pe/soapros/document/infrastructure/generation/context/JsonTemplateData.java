@@ -0,0 +1,101 @@
+package pe.soapros.document.infrastructure.generation.context;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import pe.soapros.document.domain.TemplateData;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * Template data kept as the JSON tree parsed from the message.
+ *
+ * The Map form is a {@link JsonNodeMap} view (nothing is copied); Freemarker reads the tree
+ * through {@link JsonTemplateModels}. The fingerprint is the SHA-256 of the serialized tree,
+ * streamed into the digest (no byte array is built) and computed at most once, together with
+ * the size, which is the length of that serialized form.
+ */
+public final class JsonTemplateData implements TemplateData {
+
+    private final ObjectNode node;
+    private final ObjectMapper objectMapper;
+    private volatile Summary summary;
+
+    public JsonTemplateData(ObjectNode node, ObjectMapper objectMapper) {
+        this.node = node;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @return the underlying JSON object
+     */
+    public ObjectNode node() {
+        return node;
+    }
+
+    @Override
+    public Map<String, Object> asMap() {
+        return new JsonNodeMap(node);
+    }
+
+    @Override
+    public String fingerprint() {
+        return summary().fingerprint();
+    }
+
+    @Override
+    public long size() {
+        return summary().size();
+    }
+
+    private Summary summary() {
+        Summary computed = summary;
+        if (computed == null) {
+            computed = summarize();
+            summary = computed;
+        }
+        return computed;
+    }
+
+    private Summary summarize() {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            ByteCounter counter = new ByteCounter();
+            try (OutputStream out = new DigestOutputStream(counter, md)) {
+                objectMapper.writeValue(out, node);
+            }
+            return new Summary(HexFormat.of().formatHex(md.digest()), counter.count);
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is mandatory on every JVM
+            throw new IllegalStateException("SHA-256 not available", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to fingerprint template data", e);
+        }
+    }
+
+    private record Summary(String fingerprint, long size) {
+    }
+
+    /**
+     * Discards what is written, counting the bytes.
+     */
+    private static final class ByteCounter extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package pe.soapros.document.infrastructure.generation.context;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import freemarker.template.SimpleScalar;
+import freemarker.template.TemplateHashModel;
+import freemarker.template.TemplateModel;
+import freemarker.template.TemplateSequenceModel;
+import pe.soapros.document.domain.TemplateRequest;
+import pe.soapros.document.domain.exception.DocumentTimeoutException;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Freemarker models resolving template variables lazily from the original JSON.
+ *
+ * They expose exactly the variables {@link pe.soapros.document.infrastructure.util.VariableExtractor}
+ * builds, without copying the data:
+ * - keys of nested objects are flattened to the level of their parent (the last occurrence wins)
+ * - arrays become sequences of items, each item flattened the same way; a scalar item is a
+ *   hash with a single variable named after the array
+ * - scalars are strings (null becomes "")
+ *
+ * Only the root variables are put in the XDocReport context; array items are wrapped when the
+ * template reads them, so the tens of thousands of rows of a statement are never copied.
+ *
+ * Reading an array item also checks the request: once its deadline has passed or the render
+ * thread has been interrupted it throws {@link DocumentTimeoutException}, so a long merge stops
+ * at the next row instead of running until its first write.
+ */
+public final class JsonTemplateModels {
+
+    private JsonTemplateModels() {
+    }
+
+    /**
+     * Builds the root variables of a template from its JSON data.
+     *
+     * @param data the template data
+     * @param request the request being rendered (its deadline stops the merge)
+     * @return variable name to Freemarker model (string scalar or sequence)
+     */
+    public static Map<String, Object> rootVariables(ObjectNode data, TemplateRequest request) {
+        Map<String, JsonNode> index = new LinkedHashMap<>();
+        flatten(data, index);
+
+        Map<String, Object> variables = new HashMap<>(Math.max(16, index.size() * 2));
+        index.forEach((name, node) -> variables.put(name, wrap(name, node, request)));
+        return variables;
+    }
+
+    /**
+     * Indexes the scalar and array fields of an object and of its nested objects, in document order.
+     */
+    private static void flatten(JsonNode object, Map<String, JsonNode> index) {
+        Iterator<Map.Entry<String, JsonNode>> fields = object.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            JsonNode value = field.getValue();
+            if (value.isObject()) {
+                flatten(value, index);
+            } else {
+                // Remove first so that the last occurrence also takes the last position
+                index.remove(field.getKey());
+                index.put(field.getKey(), value);
+            }
+        }
+    }
+
+    private static TemplateModel wrap(String name, JsonNode node, TemplateRequest request) {
+        if (node.isArray()) {
+            return new Sequence(name, node, request);
+        }
+        return new SimpleScalar(JsonValues.toText(node));
+    }
+
+    private static void checkDeadline(TemplateRequest request) {
+        if (request.isExpired() || Thread.currentThread().isInterrupted()) {
+            throw new DocumentTimeoutException("Document deadline exceeded: " + request.getTemplatePath());
+        }
+    }
+
+    /**
+     * Sequence over a JSON array: item i is the flattened view of element i.
+     */
+    private static final class Sequence implements TemplateSequenceModel {
+        private final String name;
+        private final JsonNode array;
+        private final TemplateRequest request;
+
+        Sequence(String name, JsonNode array, TemplateRequest request) {
+            this.name = name;
+            this.array = array;
+            this.request = request;
+        }
+
+        @Override
+        public TemplateModel get(int index) {
+            checkDeadline(request);
+            if (index < 0 || index >= array.size()) {
+                return null;
+            }
+            JsonNode item = array.get(index);
+            return item.isObject() ? new FlattenedHash(item, request) : new SingleVariableHash(name, item, request);
+        }
+
+        @Override
+        public int size() {
+            return array.size();
+        }
+    }
+
+    /**
+     * Flattened view of a JSON object. Objects without nested objects (the usual rows) are read
+     * directly; others are indexed on first access.
+     */
+    private static final class FlattenedHash implements TemplateHashModel {
+        private final JsonNode object;
+        private final TemplateRequest request;
+        private Map<String, JsonNode> index;
+        private boolean indexed;
+
+        FlattenedHash(JsonNode object, TemplateRequest request) {
+            this.object = object;
+            this.request = request;
+        }
+
+        @Override
+        public TemplateModel get(String key) {
+            JsonNode value = lookup(key);
+            return value != null ? wrap(key, value, request) : null;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            Map<String, JsonNode> flattened = index();
+            return flattened != null ? flattened.isEmpty() : object.isEmpty();
+        }
+
+        private JsonNode lookup(String key) {
+            Map<String, JsonNode> flattened = index();
+            if (flattened != null) {
+                return flattened.get(key);
+            }
+            JsonNode value = object.get(key);
+            return value == null || value.isMissingNode() ? null : value;
+        }
+
+        /**
+         * @return the flattened index, or null if the object has no nested objects
+         */
+        private Map<String, JsonNode> index() {
+            if (!indexed) {
+                indexed = true;
+                for (JsonNode child : object) {
+                    if (child.isObject()) {
+                        index = new HashMap<>();
+                        flatten(object, index);
+                        break;
+                    }
+                }
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Item of an array of scalars (or of arrays): a single variable named after the array.
+     */
+    private static final class SingleVariableHash implements TemplateHashModel {
+        private final String name;
+        private final JsonNode value;
+        private final TemplateRequest request;
+
+        SingleVariableHash(String name, JsonNode value, TemplateRequest request) {
+            this.name = name;
+            this.value = value;
+            this.request = request;
+        }
+
+        @Override
+        public TemplateModel get(String key) {
+            return name.equals(key) ? wrap(name, value, request) : null;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package pe.soapros.document.infrastructure.generation.context;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Conversion of single JSON nodes to the Java values exposed by the views.
+ */
+final class JsonValues {
+
+    private JsonValues() {
+    }
+
+    /**
+     * @param node a JSON node (may be null)
+     * @return a view for objects and arrays, the plain Java value for scalars, null for null/missing
+     */
+    static Object toJava(JsonNode node) {
+        if (node == null || node.isNull() || node.isMissingNode()) {
+            return null;
+        }
+        if (node.isObject()) {
+            return new JsonNodeMap((ObjectNode) node);
+        }
+        if (node.isArray()) {
+            return new JsonNodeList((ArrayNode) node);
+        }
+        if (node.isTextual()) {
+            return node.textValue();
+        }
+        if (node.isNumber()) {
+            return node.numberValue();
+        }
+        if (node.isBoolean()) {
+            return node.booleanValue();
+        }
+        return node.asText();
+    }
+
+    /**
+     * Text of a scalar as the template variables expose it (null becomes an empty string).
+     *
+     * @param node a scalar node
+     * @return its text
+     */
+    static String toText(JsonNode node) {
+        return node == null || node.isNull() ? "" : node.asText();
+    }
+}
@@ -3,14 +3,20 @@ package pe.soapros.document.infrastructure.generation.html;
 import com.github.mustachejava.DefaultMustacheFactory;
 import com.github.mustachejava.Mustache;
 import com.github.mustachejava.MustacheFactory;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
 import lombok.extern.jbosslog.JBossLog;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import pe.soapros.document.domain.DocumentGenerator;
+import pe.soapros.document.domain.TemplateContent;
 import pe.soapros.document.domain.TemplateRequest;
 import pe.soapros.document.domain.exception.DocumentGenerationException;
 import pe.soapros.document.domain.exception.TemplateNotFoundException;
 import pe.soapros.document.domain.exception.TemplateProcessingException;
 import pe.soapros.document.infrastructure.qualifier.Html;
+import pe.soapros.document.infrastructure.repository.TemplateRefreshedEvent;
+import pe.soapros.document.infrastructure.util.BoundedLruCache;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
@@ -41,42 +47,78 @@ import java.util.Map;
  *   &lt;/body&gt;
  * &lt;/html&gt;
  * </pre>
+ *
+ * Compiled templates are cached (LRU) by fingerprint: content hash for templates resolved
+ * in memory by the template repository, path plus last-modified/size for filesystem
+ * templates, path only for classpath templates. Entries of a cached template file are
+ * also dropped eagerly when the repository re-downloads it.
  */
 @ApplicationScoped
 @Html
 @JBossLog
 public class HtmlTemplateGenerator implements DocumentGenerator {
 
+    private static final String CLASSPATH_VERSION = "classpath";
+
     private final MustacheFactory mustacheFactory;
 
+    @ConfigProperty(name = "app.generation.html.template-cache.max-entries", defaultValue = "128")
+    int templateCacheMaxEntries;
+
+    private BoundedLruCache<TemplateKey, Mustache> templateCache;
+
     public HtmlTemplateGenerator() {
         // Create factory that looks for templates in classpath
         this.mustacheFactory = new DefaultMustacheFactory();
     }
 
+    @PostConstruct
+    void initTemplateCache() {
+        this.templateCache = BoundedLruCache.ofMaxEntries("mustache-template-cache", templateCacheMaxEntries, null);
+        log.infof("Mustache compiled-template cache initialized (max entries: %d)", templateCacheMaxEntries);
+    }
+
+    /**
+     * Drops compiled templates built from a cached file that has just been re-downloaded.
+     *
+     * @param event the refresh event fired by the template repository
+     */
+    void onTemplateRefreshed(@Observes TemplateRefreshedEvent event) {
+        int removed = templateCache.invalidateIf((key, mustache) -> key.path().equals(event.cachedPath()));
+        if (removed > 0) {
+            log.debugf("Invalidated %d compiled template(s) for refreshed file: %s",
+                    removed, new File(event.cachedPath()).getName());
+        }
+    }
+
+    /**
+     * Returns the hit/miss counters of the compiled-template cache.
+     *
+     * @return cache statistics snapshot
+     */
+    public BoundedLruCache.Stats getTemplateCacheStats() {
+        return templateCache.stats();
+    }
+
     @Override
-    public byte[] generate(TemplateRequest input) throws DocumentGenerationException {
+    public void generate(TemplateRequest input, OutputStream output) throws DocumentGenerationException {
         try {
             log.infof("Generating HTML document from template: %s", input.getTemplatePath());
 
-            // Load template
-            InputStream templateStream = loadTemplateAsStream(input.getTemplatePath());
-            Reader reader = new InputStreamReader(templateStream, StandardCharsets.UTF_8);
-
-            // Compile Mustache template
-            Mustache mustache = mustacheFactory.compile(reader, input.getTemplatePath());
+            // Get compiled Mustache template (cached by fingerprint)
+            Mustache mustache = input.getResolvedTemplate() != null
+                    ? getCompiledTemplate(input.getResolvedTemplate(), input.getTemplatePath())
+                    : getCompiledTemplate(input.getTemplatePath());
 
             // Prepare data context
             Map<String, Object> context = prepareContext(input);
             log.debugf("Prepared context with %d variables", context.size());
 
-            // Render template
-            StringWriter writer = new StringWriter();
+            // Render template, encoding to UTF-8 as it is written (the stream is not closed: it belongs to the caller)
+            Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
             mustache.execute(writer, context).flush();
-            String html = writer.toString();
 
-            log.infof("HTML document generated successfully (%d bytes)", html.length());
-            return html.getBytes(StandardCharsets.UTF_8);
+            log.infof("HTML document generated successfully: %s", input.getTemplatePath());
 
         } catch (TemplateNotFoundException e) {
             // Re-throw domain exceptions as-is
@@ -90,6 +132,91 @@ public class HtmlTemplateGenerator implements DocumentGenerator {
         }
     }
 
+    /**
+     * Compiles a template resolved by the template repository ahead of time (startup prewarm).
+     * The entry is keyed like the ones built by generate() for the same cached file.
+     *
+     * @param template the in-memory template content
+     * @throws TemplateProcessingException if the template cannot be compiled
+     */
+    public void preload(TemplateContent template) {
+        String templatePath = template.getLocalPath() != null ? template.getLocalPath() : template.getUri();
+        try {
+            getCompiledTemplate(template, templatePath);
+        } catch (Exception e) {
+            throw new TemplateProcessingException("Failed to compile HTML template: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Gets the compiled template from the cache, compiling it on a miss.
+     *
+     * @param templatePath the path to the template
+     * @return compiled Mustache template
+     * @throws IOException if the template cannot be read
+     */
+    private Mustache getCompiledTemplate(String templatePath) throws IOException {
+        TemplateKey key = fingerprint(templatePath);
+
+        Mustache cached = templateCache.get(key);
+        if (cached != null) {
+            log.debugf("Compiled template cache hit: %s", templatePath);
+            return cached;
+        }
+
+        log.debugf("Compiled template cache miss, compiling: %s", templatePath);
+        try (Reader reader = new InputStreamReader(loadTemplateAsStream(templatePath), StandardCharsets.UTF_8)) {
+            return templateCache.putIfAbsent(key, mustacheFactory.compile(reader, templatePath));
+        }
+    }
+
+    /**
+     * Gets the compiled template for content already resolved in memory, compiling it on a miss.
+     *
+     * @param template the in-memory template content
+     * @param templatePath the resolved template path (cached file)
+     * @return compiled Mustache template
+     * @throws IOException if the template cannot be read
+     */
+    private Mustache getCompiledTemplate(TemplateContent template, String templatePath) throws IOException {
+        TemplateKey key = new TemplateKey(templatePath, template.getFingerprint());
+
+        Mustache cached = templateCache.get(key);
+        if (cached != null) {
+            log.debugf("Compiled template cache hit: %s", templatePath);
+            return cached;
+        }
+
+        log.debugf("Compiled template cache miss, compiling: %s", templatePath);
+        try (Reader reader = new InputStreamReader(template.openStream(), StandardCharsets.UTF_8)) {
+            return templateCache.putIfAbsent(key, mustacheFactory.compile(reader, templatePath));
+        }
+    }
+
+    /**
+     * Builds the cache key of a template without reading its content.
+     * Classpath templates are immutable for the lifetime of the process; filesystem
+     * templates are versioned by last-modified time and size.
+     *
+     * @param templatePath the path to the template
+     * @return the template fingerprint
+     * @throws TemplateNotFoundException if the template cannot be found
+     */
+    private TemplateKey fingerprint(String templatePath) throws TemplateNotFoundException {
+        ClassLoader classLoader = getClass().getClassLoader();
+        if (classLoader.getResource("templates/" + templatePath) != null
+                || classLoader.getResource(templatePath) != null) {
+            return new TemplateKey(templatePath, CLASSPATH_VERSION);
+        }
+
+        File file = new File(templatePath);
+        if (file.exists() && file.canRead()) {
+            return new TemplateKey(templatePath, file.lastModified() + ":" + file.length());
+        }
+
+        throw new TemplateNotFoundException(templatePath);
+    }
+
     /**
      * Loads a template file from the classpath or filesystem.
      * First attempts to load from classpath (templates/), then falls back to filesystem.
@@ -230,5 +357,13 @@ public class HtmlTemplateGenerator implements DocumentGenerator {
         // Default to PNG
         return "image/png";
     }
-}
 
+    /**
+     * Cache key of a compiled template.
+     *
+     * @param path the template path as received in the request
+     * @param version content hash, classpath marker or filesystem last-modified/size
+     */
+    private record TemplateKey(String path, String version) {
+    }
+}
@@ -0,0 +1,110 @@
+package pe.soapros.document.infrastructure.generation.input;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.io.SegmentedStringWriter;
+import com.fasterxml.jackson.core.util.BufferRecycler;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * A section of a message that generation never reads (cliente, clienteData, callback...).
+ *
+ * While deserializing, the section is copied token by token from the parser into its compact
+ * JSON text: no JsonNode tree (one object per field and value) is built for it. When the
+ * message is serialized back, the text is written verbatim as a raw value.
+ *
+ * Messages whose response is copied from their original JSON (see SentryResponseWriter) never
+ * serialize these sections: read through {@link #skippingReader}, the sections are skipped and
+ * left as {@link #SKIPPED}, which refuses to be serialized.
+ */
+@JsonSerialize(using = RawJson.Serializer.class)
+@JsonDeserialize(using = RawJson.Deserializer.class)
+public final class RawJson {
+
+    /**
+     * A section that was skipped while reading; it has no JSON text.
+     */
+    public static final RawJson SKIPPED = new RawJson(null);
+
+    private static final String SKIP_ATTRIBUTE = RawJson.class.getName() + ".skip";
+
+    private final String json;
+
+    public RawJson(String json) {
+        this.json = json;
+    }
+
+    /**
+     * Creates a reader that skips raw sections instead of copying them.
+     * Only for messages whose response is written from their original JSON.
+     *
+     * @param objectMapper the mapper
+     * @param type the type to read
+     * @return the reader
+     */
+    public static ObjectReader skippingReader(ObjectMapper objectMapper, Class<?> type) {
+        return objectMapper.readerFor(type).withAttribute(SKIP_ATTRIBUTE, Boolean.TRUE);
+    }
+
+    /**
+     * @return the JSON text of the section (null if it was {@link #SKIPPED})
+     */
+    public String json() {
+        return json;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof RawJson that && Objects.equals(json, that.json);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(json);
+    }
+
+    @Override
+    public String toString() {
+        return json != null ? "RawJson{" + json.length() + " chars}" : "RawJson{skipped}";
+    }
+
+    static final class Deserializer extends JsonDeserializer<RawJson> {
+        @Override
+        public RawJson deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            if (Boolean.TRUE.equals(context.getAttribute(SKIP_ATTRIBUTE))) {
+                parser.skipChildren();
+                return SKIPPED;
+            }
+            // Parsers created by ObjectMapper/ObjectReader always carry their codec
+            ObjectCodec codec = parser.getCodec();
+            SegmentedStringWriter writer = new SegmentedStringWriter(new BufferRecycler());
+            try (JsonGenerator generator = codec.getFactory().createGenerator(writer)) {
+                generator.copyCurrentStructure(parser);
+            }
+            return new RawJson(writer.getAndClear());
+        }
+    }
+
+    static final class Serializer extends JsonSerializer<RawJson> {
+        @Override
+        public void serialize(RawJson value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            if (value.json == null) {
+                throw JsonMappingException.from(generator,
+                        "Raw JSON section was skipped while reading: write the message from its original JSON");
+            }
+            generator.writeRawValue(value.json);
+        }
+    }
+}
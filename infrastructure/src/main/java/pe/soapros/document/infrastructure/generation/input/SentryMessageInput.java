@@ -1,7 +1,7 @@
 package pe.soapros.document.infrastructure.generation.input;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
@@ -12,16 +12,16 @@ import java.util.List;
 @NoArgsConstructor
 @ToString
 public class SentryMessageInput {
-    private JsonNode metadata;
+    private RawJson metadata;
     private DataNode data;
 
     @Data
     @ToString(exclude = {"clienteData"})
     public static class DataNode {
-        private JsonNode cliente;
-        private JsonNode clienteData;
+        // Secciones que la generación no lee: se conservan como texto JSON sin construir árboles
+        private RawJson cliente;
+        private RawJson clienteData;
         private ItemCanonico item_canonico;
-        // Los otros campos (cliente, clienteData, action) pueden ser JsonNode si no se usan
     }
 
 
@@ -29,11 +29,11 @@ public class SentryMessageInput {
     public static class ItemCanonico {
         private String output_producto;
         private String output_subproducto;
-        private JsonNode output_metadata;
+        private RawJson output_metadata;
         private List<OutputNode> outputs;
-        private JsonNode callback;
-        private JsonNode metadata;
-        private JsonNode _error;
+        private RawJson callback;
+        private RawJson metadata;
+        private RawJson _error;
     }
 
     @Data
@@ -45,7 +45,7 @@ public class SentryMessageInput {
     @Data
     public static class ComposicionNode {
         private String template;
-        private JsonNode data;
+        private RawJson data;
         private String resource;
         private String type;
         private MetadataNode metadata;
@@ -62,13 +62,15 @@ public class SentryMessageInput {
         private String input_format;
         private String output_format;
         private String location;
-        private JsonNode data;
-        private JsonNode error;
-        private JsonNode _error;
+        private JsonNode data; // único árbol que se construye: son los datos de la plantilla
+        private RawJson error;
+        private RawJson _error;
     }
 
     @Data
     public static class ResultNode {
         private String location;
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private String error; // solo si la composición falló (ej: timeout)
     }
 }
@@ -9,31 +9,71 @@ import fr.opensagres.xdocreport.document.registry.XDocReportRegistry;
 import fr.opensagres.xdocreport.template.IContext;
 import fr.opensagres.xdocreport.template.TemplateEngineKind;
 import fr.opensagres.xdocreport.template.formatter.FieldsMetadata;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
 
 import lombok.extern.jbosslog.JBossLog;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import pe.soapros.document.domain.DocumentGenerator;
+import pe.soapros.document.domain.TemplateContent;
 import pe.soapros.document.domain.TemplateRequest;
 import pe.soapros.document.domain.exception.DocumentGenerationException;
+import pe.soapros.document.domain.exception.DocumentTimeoutException;
 import pe.soapros.document.domain.exception.InvalidTemplateDataException;
 import pe.soapros.document.domain.exception.TemplateNotFoundException;
 import pe.soapros.document.domain.exception.TemplateProcessingException;
+import pe.soapros.document.infrastructure.generation.context.JsonTemplateData;
+import pe.soapros.document.infrastructure.generation.context.JsonTemplateModels;
 import pe.soapros.document.infrastructure.qualifier.Pdf;
+import pe.soapros.document.infrastructure.util.BoundedLruCache;
+import pe.soapros.document.infrastructure.util.Util;
 import pe.soapros.document.infrastructure.util.VariableExtractor;
 
 import java.io.*;
 import java.util.Base64;
+import java.util.Collections;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * XDocReport-based implementation of DocumentGenerator.
  * Generates PDF documents from DOCX/ODT templates using the Freemarker template engine.
+ *
+ * Parsed reports are kept in a bounded LRU cache keyed by the SHA-256 of the template
+ * bytes plus the set of image fields (image fields are part of the preprocessed report),
+ * so unzipping and Freemarker preprocessing only happen once per template version.
+ * Per request only the context is built and the conversion runs.
  */
 @ApplicationScoped
 @Pdf
 @JBossLog
 public class XDocPdfGenerator implements DocumentGenerator {
 
+    private static final String IMAGE_FIELD_PREFIX = "image_pr_";
+
+    @ConfigProperty(name = "app.generation.pdf.report-cache.max-entries", defaultValue = "64")
+    int reportCacheMaxEntries;
+
+    private BoundedLruCache<String, IXDocReport> reportCache;
+
+    @PostConstruct
+    void initReportCache() {
+        // Evicted reports must be unregistered, otherwise the XDocReport registry keeps them alive
+        this.reportCache = BoundedLruCache.ofMaxEntries("xdoc-report-cache", reportCacheMaxEntries,
+                (key, report) -> XDocReportRegistry.getRegistry().unregisterReport(report));
+        log.infof("XDocReport compiled-report cache initialized (max entries: %d)", reportCacheMaxEntries);
+    }
+
+    /**
+     * Returns the hit/miss counters of the compiled-report cache.
+     *
+     * @return cache statistics snapshot
+     */
+    public BoundedLruCache.Stats getReportCacheStats() {
+        return reportCache.stats();
+    }
+
     /**
      * Loads a template file from the classpath or filesystem.
      * First attempts to load from classpath, then falls back to filesystem.
@@ -65,44 +105,146 @@ public class XDocPdfGenerator implements DocumentGenerator {
         }
     }
 
+    /**
+     * Gets the template content: the in-memory content resolved by the template repository
+     * when available, otherwise the template is read from the classpath or filesystem.
+     *
+     * @param input the template request
+     * @return template content with its fingerprint
+     * @throws TemplateNotFoundException if the template cannot be found or read
+     */
+    private TemplateContent resolveTemplateContent(TemplateRequest input) throws TemplateNotFoundException {
+        if (input.getResolvedTemplate() != null) {
+            return input.getResolvedTemplate();
+        }
+
+        String templatePath = input.getTemplatePath();
+        try (InputStream template = loadTemplateAsStream(templatePath)) {
+            byte[] bytes = template.readAllBytes();
+            return new TemplateContent(templatePath, null, bytes, Util.sha256Hex(bytes));
+        } catch (IOException e) {
+            log.errorf(e, "Failed to read template: %s", templatePath);
+            throw new TemplateNotFoundException(templatePath);
+        }
+    }
+
+    /**
+     * Gets the parsed report for a template from the cache, parsing it on a miss.
+     *
+     * @param template the template content
+     * @param imageFields names of the image fields that must be declared in the report metadata
+     * @param templatePath the template path (for logging only)
+     * @return a preprocessed report ready to be converted
+     */
+    private IXDocReport getCompiledReport(TemplateContent template, Set<String> imageFields, String templatePath) {
+        String cacheKey = template.getFingerprint() + (imageFields.isEmpty() ? "" : "|" + String.join(",", imageFields));
+
+        IXDocReport report = reportCache.get(cacheKey);
+        if (report != null) {
+            log.debugf("Compiled report cache hit: %s (%s)", templatePath, reportCache.stats());
+            return report;
+        }
+
+        log.debugf("Compiled report cache miss, parsing template: %s", templatePath);
+        return reportCache.putIfAbsent(cacheKey, loadReport(template, imageFields, templatePath));
+    }
+
+    /**
+     * Parses a template with XDocReport, declares its image fields and preprocesses it,
+     * so that the cached instance is never mutated by concurrent requests.
+     */
+    private IXDocReport loadReport(TemplateContent template, Set<String> imageFields, String templatePath) {
+        try {
+            IXDocReport report = XDocReportRegistry.getRegistry()
+                    .loadReport(template.openStream(), TemplateEngineKind.Freemarker, false);
+            log.debugf("Template engine: %s", report.getTemplateEngine());
+
+            if (!imageFields.isEmpty()) {
+                FieldsMetadata metadata = report.getFieldsMetadata();
+                if (metadata == null) {
+                    metadata = new FieldsMetadata();
+                }
+                for (String imageField : imageFields) {
+                    metadata.addFieldAsImage(imageField);
+                }
+                report.setFieldsMetadata(metadata);
+            }
+
+            report.preprocess();
+            return report;
+        } catch (Exception e) {
+            log.errorf(e, "Error parsing template: %s", templatePath);
+            throw new TemplateProcessingException("Failed to parse template: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Builds the sorted set of image field names used in the report metadata.
+     */
+    private Set<String> imageFieldNames(Map<String, String> images) {
+        if (images == null || images.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<String> fields = new TreeSet<>();
+        for (String imageName : images.keySet()) {
+            fields.add(IMAGE_FIELD_PREFIX + imageName);
+        }
+        return fields;
+    }
+
+    /**
+     * Parses a template ahead of time (startup prewarm) so that the first request using it
+     * only builds the context and converts. The report is cached under the key used by
+     * requests without images.
+     *
+     * @param template the template content
+     * @throws TemplateProcessingException if the template cannot be parsed
+     */
+    public void preload(TemplateContent template) {
+        getCompiledReport(template, Collections.emptySet(), template.getUri());
+    }
+
     @Override
-    public byte[] generate(TemplateRequest input) throws DocumentGenerationException {
+    public void generate(TemplateRequest input, OutputStream output) throws DocumentGenerationException {
         try {
-            // Load template
-            InputStream template = loadTemplateAsStream(input.getTemplatePath());
+            // Load template (from memory when resolved by the template repository)
+            TemplateContent template = resolveTemplateContent(input);
             log.debugf("Processing template: %s", input.getTemplatePath());
 
-            // Parse template with XDocReport
-            IXDocReport report = XDocReportRegistry.getRegistry()
-                    .loadReport(template, TemplateEngineKind.Freemarker, false);
-            log.debugf("Template engine: %s", report.getTemplateEngine());
+            // Get parsed template (cached by content hash)
+            IXDocReport report = getCompiledReport(template, imageFieldNames(input.getImages()), input.getTemplatePath());
 
-            // Extract and prepare variables
-            Map<String, Object> variables = new VariableExtractor().extract("", input);
+            // Extract and prepare variables (resolved lazily when the raw JSON is available)
+            Map<String, Object> variables = input.getTemplateData() instanceof JsonTemplateData json
+                    ? JsonTemplateModels.rootVariables(json.node(), input)
+                    : new VariableExtractor().extract("", input);
             log.debugf("Extracted %d variables from template data", variables.size());
 
             IContext context = report.createContext(variables);
 
             // Process images if provided
             if (input.getImages() != null && !input.getImages().isEmpty()) {
-                processImages(input.getImages(), report, context);
+                processImages(input.getImages(), context);
             }
 
-            // Convert to PDF
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            // Convert to PDF, streaming straight to the caller's sink
             Options options = Options.getTo(ConverterTypeTo.PDF);
-            report.convert(context, options, out);
-
-            return out.toByteArray();
-
+            report.convert(context, options, output);
+            output.flush();
 
-        } catch (TemplateNotFoundException | InvalidTemplateDataException e) {
+        } catch (TemplateNotFoundException | InvalidTemplateDataException | TemplateProcessingException e) {
             // Re-throw domain exceptions as-is
             throw e;
         } catch (IllegalArgumentException e) {
             log.errorf(e, "Invalid Base64 image data");
             throw new InvalidTemplateDataException("Invalid image data: " + e.getMessage(), e);
         } catch (Exception e) {
+            // A merge or write stopped by the deadline comes back wrapped by XDocReport/Freemarker
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if (cause instanceof DocumentTimeoutException timeout) {
+                    throw timeout;
+                }
+            }
             log.errorf(e, "Error processing template: %s", input.getTemplatePath());
             throw new TemplateProcessingException("Failed to generate document: " + e.getMessage(), e);
         }
@@ -110,20 +252,15 @@ public class XDocPdfGenerator implements DocumentGenerator {
 
     /**
      * Processes and embeds Base64-encoded images into the document.
+     * The image fields are already declared in the cached report metadata.
      *
      * @param images map of image names to Base64-encoded data
-     * @param report the XDocReport instance
      * @param context the template context
      * @throws InvalidTemplateDataException if image data is invalid
      */
-    private void processImages(Map<String, String> images, IXDocReport report, IContext context)
+    private void processImages(Map<String, String> images, IContext context)
             throws InvalidTemplateDataException {
         try {
-            FieldsMetadata metadata = report.getFieldsMetadata();
-            if (metadata == null) {
-                metadata = new FieldsMetadata();
-            }
-
             for (Map.Entry<String, String> entry : images.entrySet()) {
                 String imageName = entry.getKey();
                 String base64Data = entry.getValue();
@@ -133,14 +270,11 @@ public class XDocPdfGenerator implements DocumentGenerator {
                 IImageProvider image = new ByteArrayImageProvider(imageBytes, true);
 
                 // Add to context with prefix
-                String key = "image_pr_" + imageName;
-                metadata.addFieldAsImage(key);
-                context.put(key, image);
+                context.put(IMAGE_FIELD_PREFIX + imageName, image);
 
                 log.debugf("Processed image: %s (%d bytes)", imageName, imageBytes.length);
             }
 
-            report.setFieldsMetadata(metadata);
             log.debugf("Successfully processed %d images", images.size());
         } catch (IllegalArgumentException e) {
             throw new InvalidTemplateDataException("Invalid Base64 image encoding", e);
@@ -5,8 +5,11 @@ import lombok.extern.jbosslog.JBossLog;
 import pe.soapros.document.domain.DocumentGenerator;
 import pe.soapros.document.domain.TemplateRequest;
 import pe.soapros.document.domain.exception.DocumentGenerationException;
+import pe.soapros.document.domain.exception.TemplateProcessingException;
 import pe.soapros.document.infrastructure.qualifier.Txt;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 
 /**
@@ -21,7 +24,7 @@ import java.nio.charset.StandardCharsets;
 public class PlainTextGenerator implements DocumentGenerator {
 
     @Override
-    public byte[] generate(TemplateRequest input) throws DocumentGenerationException {
+    public void generate(TemplateRequest input, OutputStream output) throws DocumentGenerationException {
         log.infof("Generating TXT document from template: %s", input.getTemplatePath());
 
         // TODO: Implement TXT generation
@@ -30,10 +33,15 @@ public class PlainTextGenerator implements DocumentGenerator {
         // 2. Use simple string replacement or a template engine like Freemarker
         // 3. Replace variables with data from input.getData()
         // 4. Format output appropriately (tables, lists, etc.)
-        // 5. Return the generated text as bytes with proper charset encoding
+        // 5. Write the generated text with proper charset encoding
 
         String text = buildPlaceholderText(input);
-        return text.getBytes(StandardCharsets.UTF_8);
+        try {
+            output.write(text.getBytes(StandardCharsets.UTF_8));
+            output.flush();
+        } catch (IOException e) {
+            throw new TemplateProcessingException("Failed to write TXT document: " + e.getMessage(), e);
+        }
     }
 
     /**
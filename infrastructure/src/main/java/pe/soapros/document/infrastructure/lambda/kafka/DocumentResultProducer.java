@@ -1,13 +1,14 @@
 package pe.soapros.document.infrastructure.lambda.kafka;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import io.smallrye.reactive.messaging.kafka.Record;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import lombok.extern.jbosslog.JBossLog;
 import org.eclipse.microprofile.reactive.messaging.Channel;
 import org.eclipse.microprofile.reactive.messaging.Emitter;
-import pe.soapros.document.infrastructure.generation.input.SentryMessageInput;
+import pe.soapros.document.infrastructure.generation.GenerationScheduler;
+import pe.soapros.document.infrastructure.mapper.SentryResponse;
+import pe.soapros.document.infrastructure.mapper.SentryResponseWriter;
 
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
@@ -18,48 +19,54 @@ import java.util.concurrent.CompletionStage;
  *
  * Functional approach:
  * - Uses Emitters for manual message sending
- * - CompletableFuture for async operations
+ * - CompletableFuture for async operations (on the I/O executor of {@link GenerationScheduler},
+ *   not the common pool)
  * - Pure functions for transformations
+ * - Each message is written by copying its original JSON with only the results rewritten
+ *   ({@link SentryResponseWriter}), instead of serializing the whole object graph
  */
 @ApplicationScoped
 @JBossLog
 public class DocumentResultProducer {
 
     @Inject
-    ObjectMapper objectMapper;
+    SentryResponseWriter responseWriter;
 
     @Inject
     @Channel("document-responses-manual")
     Emitter<String> resultEmitter;
 
+    @Inject
+    GenerationScheduler generationScheduler;
+
     /**
      * Sends a single result to Kafka topic.
      * Functional with async CompletionStage.
      *
-     * @param result the SentryMessageInput with results
+     * @param result the updated message and its original JSON
      * @return CompletionStage indicating completion
      */
-    public CompletionStage<Void> sendResult(SentryMessageInput result) {
+    public CompletionStage<Void> sendResult(SentryResponse result) {
         return CompletableFuture.runAsync(() -> {
             try {
-                String json = objectMapper.writeValueAsString(result);
+                String json = responseWriter.writeAsString(result);
                 resultEmitter.send(json);
                 log.debugf("Sent result to Kafka: %d bytes", json.length());
             } catch (Exception e) {
                 log.errorf(e, "Error sending result to Kafka");
                 throw new RuntimeException("Failed to send result", e);
             }
-        });
+        }, generationScheduler.ioExecutor());
     }
 
     /**
      * Sends batch of results to Kafka topic.
      * Functional processing using streams.
      *
-     * @param results list of SentryMessageInput
+     * @param results the updated messages and their original JSON
      * @return CompletionStage indicating completion
      */
-    public CompletionStage<Void> sendBatch(List<SentryMessageInput> results) {
+    public CompletionStage<Void> sendBatch(List<SentryResponse> results) {
         log.infof("Sending batch of %d results to Kafka", results.size());
 
         return CompletableFuture.allOf(
@@ -84,10 +91,10 @@ public class DocumentResultProducer {
      * @param result the result
      * @return CompletionStage indicating completion
      */
-    public CompletionStage<Void> sendWithKey(String key, SentryMessageInput result) {
+    public CompletionStage<Void> sendWithKey(String key, SentryResponse result) {
         return CompletableFuture.runAsync(() -> {
             try {
-                String json = objectMapper.writeValueAsString(result);
+                String json = responseWriter.writeAsString(result);
                 // Note: For keyed messages, you'd need a different emitter type
                 // Emitter<Record<String, String>> for key-value pairs
                 resultEmitter.send(json);
@@ -96,6 +103,6 @@ public class DocumentResultProducer {
                 log.errorf(e, "Error sending keyed result to Kafka");
                 throw new RuntimeException("Failed to send keyed result", e);
             }
-        });
+        }, generationScheduler.ioExecutor());
     }
 }
@@ -2,9 +2,11 @@ package pe.soapros.document.infrastructure.lambda.kafka;
 
 import com.amazonaws.services.lambda.runtime.events.KafkaEvent;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.github.f4b6a3.ulid.Ulid;
 import com.github.f4b6a3.ulid.UlidCreator;
 import io.smallrye.common.annotation.Blocking;
+import jakarta.annotation.PostConstruct;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
@@ -13,16 +15,40 @@ import lombok.extern.jbosslog.JBossLog;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import pe.soapros.document.application.GenerateDocumentUseCase;
 import pe.soapros.document.domain.DocumentResult;
+import pe.soapros.document.domain.DocumentSink;
+import pe.soapros.document.domain.TemplateContent;
+import pe.soapros.document.domain.TemplateRepository;
 import pe.soapros.document.domain.TemplateRequest;
+import pe.soapros.document.domain.exception.DocumentOverloadedException;
+import pe.soapros.document.domain.exception.DocumentTimeoutException;
+import pe.soapros.document.infrastructure.generation.GenerationScheduler;
+import pe.soapros.document.infrastructure.generation.RenderCostModel;
+import pe.soapros.document.infrastructure.generation.input.RawJson;
 import pe.soapros.document.infrastructure.generation.input.SentryMessageInput;
 import pe.soapros.document.infrastructure.mapper.SentryMessageMapper;
+import pe.soapros.document.infrastructure.mapper.SentryResponse;
 import pe.soapros.document.infrastructure.util.LogSanitizer;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -31,7 +57,7 @@ import java.util.stream.Collectors;
  * Esta clase está diseñada específicamente para AWS Lambda con MSK Event Source Mapping:
  * - AWS MSK ESM consume mensajes de Kafka y los agrupa en batch
  * - Invoca esta Lambda función vía HTTP
- * - Procesa el batch en paralelo usando programación funcional
+ * - Procesa el batch en paralelo en los executors de {@link GenerationScheduler}
  * - Envía resultados a otro tópico de MSK usando Kafka Producer
  *
  * IMPORTANTE: NO usar @Incoming/@Outgoing porque Lambda es serverless.
@@ -58,9 +84,58 @@ public class LambdaMskEventHandler {
     @Inject
     DocumentResultProducer kafkaProducer;
 
+    @Inject
+    GenerationScheduler generationScheduler;
+
+    @Inject
+    RenderCostModel renderCostModel;
+
+    @Inject
+    TemplateRepository templateRepository;
+
+    /**
+     * Reader pre-construido para los mensajes (evita resolver el deserializador por record).
+     */
+    private ObjectReader messageReader;
+
+    @ConfigProperty(name = "app.templates.prefetch.enabled", defaultValue = "true")
+    boolean prefetchEnabled;
+
+    /**
+     * Agrupa los documentos del batch por template (localidad de caches) en vez de procesar record por record.
+     */
+    @ConfigProperty(name = "app.generation.batch.group-by-template", defaultValue = "false")
+    boolean groupByTemplate;
+
+    /**
+     * Tiempo máximo del batch (0 = sin límite): los documentos que no terminan a tiempo se marcan
+     * como fallidos en su composición, en vez de que el Lambda expire y se reintente todo el batch.
+     */
+    @ConfigProperty(name = "app.generation.deadline.batch-ms", defaultValue = "600000")
+    long batchDeadlineMs;
+
     @ConfigProperty(name = "app.generation.temp", defaultValue = "/temp")
     String tempDirectory;
 
+    /**
+     * Sink de los requests no persistidos (LOCAL_FILE mantiene la location "fs@" en el topic de salida).
+     * El mensaje de Sentry no tiene un campo para elegir el sink, así que aquí es una configuración
+     * del despliegue; los requests persistidos siguen yendo al repositorio. MEMORY se rechaza:
+     * la respuesta solo lleva la location del documento y los bytes se perderían.
+     */
+    @ConfigProperty(name = "app.generation.sink.kafka", defaultValue = "LOCAL_FILE")
+    DocumentSink defaultSink;
+
+    @PostConstruct
+    void init() {
+        if (defaultSink == DocumentSink.MEMORY) {
+            throw new IllegalStateException(
+                    "app.generation.sink.kafka=MEMORY is not supported: the response only carries the document location");
+        }
+        // La respuesta se escribe copiando el JSON original: las secciones RawJson no se copian al leer
+        messageReader = RawJson.skippingReader(objectMapper, SentryMessageInput.class);
+    }
+
     /**
      * Procesa batch de eventos desde AWS MSK Event Source Mapping.
      *
@@ -69,6 +144,7 @@ public class LambdaMskEventHandler {
      *
      * @param kafkaEvent el evento nativo de Kafka de AWS con los records y metadata
      * @return Response con estadísticas de procesamiento
+     * @throws DocumentOverloadedException si algún documento fue rechazado por sobrecarga (el batch se reintenta)
      */
     @POST
     @Path("/batch")
@@ -83,17 +159,45 @@ public class LambdaMskEventHandler {
 
         long startTime = System.currentTimeMillis();
 
-        // Procesamiento funcional paralelo:
-        // 1. Aplanar Map<String, List<Record>> a Stream<Record>
-        // 2. Procesar cada record con su metadata
-        List<ProcessResult> results = kafkaEvent.getRecords().values().stream()
+        // Procesamiento paralelo:
+        // 1. Aplanar Map<String, List<Record>> a List<Record>
+        // 2. Decodificar y mapear cada record (virtual threads) y estimar su costo de render
+        // 3. Procesar los records de mayor costo primero: así el más pesado no queda al final
+        //    dominando la duración del batch. Sus documentos se encolan en orden de costo y con
+        //    su costo como prioridad, tanto para los permisos de render como para el pool CPU
+        List<KafkaEvent.KafkaEventRecord> records = kafkaEvent.getRecords().values().stream()
                 .flatMap(List::stream)
-                .parallel()
-                .map(this::processKafkaRecord)
-                .collect(Collectors.toList());
+                .toList();
+        List<DecodedRecord> decoded = generationScheduler.mapAll(records, this::decodeRecord);
+        if (batchDeadlineMs > 0) {
+            long batchDeadline = startTime + batchDeadlineMs;
+            decoded.forEach(record -> record.templates.forEach(template -> template.setDeadline(batchDeadline)));
+        }
+
+        // 2b. Pre-resolver en paralelo los templates únicos del batch, antes de empezar a renderizar:
+        //     las descargas se solapan entre sí en vez de intercalarse con las conversiones
+        if (prefetchEnabled) {
+            prefetchTemplates(decoded);
+        }
+
+        List<ProcessResult> results = groupByTemplate
+                ? processGroupedByTemplate(decoded)
+                : processLongestFirst(decoded);
+
+        // Un documento rechazado por sobrecarga es reintentable: se falla la invocación sin publicar
+        // nada (DomainExceptionMapper responde 503) y el event source mapping reentrega el batch
+        Optional<DocumentOverloadedException> overload = results.stream()
+                .map(r -> r.overload)
+                .filter(Objects::nonNull)
+                .findFirst();
+        if (overload.isPresent()) {
+            log.warnf("MSK batch rejected by admission control in %d ms, it will be retried (%s)",
+                    System.currentTimeMillis() - startTime, generationScheduler.describeLoad());
+            throw overload.get();
+        }
 
         // Separar éxitos y errores
-        List<SentryMessageInput> successResults = results.stream()
+        List<SentryResponse> successResults = results.stream()
                 .filter(r -> r.success)
                 .map(r -> r.result)
                 .collect(Collectors.toList());
@@ -124,91 +228,248 @@ public class LambdaMskEventHandler {
         response.put("failureCount", errors.size());
         response.put("errors", errors);
         response.put("durationMs", duration);
+        response.put("estimatedCostMs", results.stream().mapToLong(r -> r.estimatedCostMs).sum());
+        response.put("actualCostMs", results.stream().mapToLong(r -> r.actualCostMs).sum());
+        response.put("records", results.stream().map(ProcessResult::costReport).toList());
         response.put("timestamp", System.currentTimeMillis());
 
-        log.infof("MSK batch completed: %d success, %d failures in %d ms",
-                successResults.size(), errors.size(), duration);
+        log.infof("MSK batch completed: %d success, %d failures in %d ms (%s)",
+                successResults.size(), errors.size(), duration, generationScheduler.describeLoad());
 
         return Response.ok(response).build();
     }
 
     /**
-     * Función que procesa un solo record de Kafka, extrayendo la metadata
-     * y el contenido antes de pasarlo al pipeline de negocio.
+     * Decodifica un record de Kafka y mapea su contenido a TemplateRequests, estimando el
+     * costo de render de todos sus documentos (historial por template, tamaño de data e imágenes).
+     * Un record que no se puede decodificar queda como fallido con costo 0.
      */
-    private ProcessResult processKafkaRecord(KafkaEvent.KafkaEventRecord record) {
+    private DecodedRecord decodeRecord(KafkaEvent.KafkaEventRecord record) {
         try {
-            // 1. Extraer Metadata de Kafka (solución al problema de acceso a metadata)
-            String key = record.getKey();
-            int partition = record.getPartition();
-            long offset = record.getOffset();
-            String topic = record.getTopic();
-
-            // 2. Decodificar el valor (está en Base64, como lo manda AWS)
-            String valueJson = new String(java.util.Base64.getDecoder().decode(record.getValue()));
-
-            // 3. Mapear el contenido del mensaje (SentryMessageInput)
-            SentryMessageInput input = objectMapper.readValue(valueJson, SentryMessageInput.class);
-
-            // 4. Ejecutar la lógica de negocio (manteniendo el pipeline funcional)
-            ProcessResult result = processMessageFunctional(input);
-
-            // 5. Loguear la metadata para trazabilidad
-            log.infof("Processed KAFKA record: Topic=%s, Partition=%d, Offset=%d, Key=%s",
-                    topic, partition, offset, key);
+            // 1-2. Decodificar el valor (Base64, como lo manda AWS) mientras Jackson lo parsea:
+            //      sin byte[] ni String intermedios, y como bytes UTF-8 (no con el charset de la plataforma)
+            SentryMessageInput input;
+            try (InputStream value = originalJson(record)) {
+                input = messageReader.readValue(value);
+            }
+            List<TemplateRequest> templates = sentryMessageMapper.toTemplateRequest(input);
 
-            return result;
+            long estimatedCostMs = templates.stream().mapToLong(renderCostModel::estimateMs).sum();
+            return DecodedRecord.decoded(record, input, templates, estimatedCostMs);
 
         } catch (Exception e) {
-            // Incluir metadata en el log de error
-            log.errorf(e, "Error processing Kafka record: topic=%s, key=%s, offset=%d",
+            log.errorf(e, "Error decoding Kafka record: topic=%s, key=%s, offset=%d",
                     record.getTopic(), record.getKey(), record.getOffset());
+            return DecodedRecord.failed(record, e.getMessage());
+        }
+    }
 
-            // Adjuntar metadata al error para trazabilidad
-            return ProcessResult.failure(String.format("Record Topic %s, Key %s, Offset %d: %s",
-                    record.getTopic(), record.getKey(), record.getOffset(), e.getMessage()));
+    /**
+     * Procesa los records de mayor costo estimado primero: los renders de todos los records se
+     * encolan desde este hilo, del record más costoso al menos costoso y con su costo como
+     * prioridad, de modo que los permisos de render y el pool CPU los atienden en ese orden.
+     *
+     * @param decoded records decodificados del batch
+     * @return resultados en el orden original de los records
+     */
+    private List<ProcessResult> processLongestFirst(List<DecodedRecord> decoded) {
+        List<DecodedRecord> longestFirst = decoded.stream()
+                .sorted(Comparator.comparingLong((DecodedRecord r) -> r.estimatedCostMs).reversed())
+                .toList();
+        Map<DecodedRecord, List<CompletableFuture<DocumentResult>>> documentsOf = new IdentityHashMap<>();
+        Map<DecodedRecord, LongAdder> renderNanosOf = new IdentityHashMap<>();
+        for (DecodedRecord record : longestFirst) {
+            LongAdder renderNanos = new LongAdder();
+            renderNanosOf.put(record, renderNanos);
+            documentsOf.put(record, record.errorMessage != null ? List.of()
+                    : generationScheduler.submitAll(record.templates, timedRender(renderNanos), record.estimatedCostMs));
         }
+        return decoded.stream()
+                .map(record -> completeRecord(record, documentsOf.get(record), renderNanosOf.get(record)))
+                .toList();
     }
 
     /**
-     * Procesa un mensaje individual usando programación funcional.
-     * Esta función hace EXACTAMENTE lo mismo que DocumentLambdaResource.generate()
+     * Procesa todos los documentos del batch agrupados por template: cada grupo se renderiza en un
+     * mismo worker (reportes compilados, fuentes e imágenes siguen calientes) y los workers libres
+     * roban trabajo de los grupos más grandes. Los resultados de cada record se rearman en el orden
+     * de sus templates, como lo requiere updateWithGeneratedDocuments.
      *
-     * Transformación funcional:
-     * SentryMessageInput → TemplateRequests → DocumentResults → Updated Input
+     * @param decoded records decodificados del batch
+     * @return resultados en el orden original de los records
+     */
+    private List<ProcessResult> processGroupedByTemplate(List<DecodedRecord> decoded) {
+        List<TemplateRequest> all = new ArrayList<>();
+        Map<TemplateRequest, LongAdder> renderNanosOf = new IdentityHashMap<>();
+        List<LongAdder> renderNanos = new ArrayList<>(decoded.size());
+        for (DecodedRecord record : decoded) {
+            LongAdder adder = new LongAdder();
+            renderNanos.add(adder);
+            for (TemplateRequest template : record.templates) {
+                all.add(template);
+                renderNanosOf.put(template, adder);
+            }
+        }
+
+        List<CompletableFuture<DocumentResult>> futures = generationScheduler.generateGrouped(all, this::groupKeyOf,
+                template -> timedRender(renderNanosOf.get(template)).apply(template));
+
+        List<ProcessResult> results = new ArrayList<>(decoded.size());
+        int offset = 0;
+        for (int i = 0; i < decoded.size(); i++) {
+            DecodedRecord record = decoded.get(i);
+            List<CompletableFuture<DocumentResult>> own = futures.subList(offset, offset + record.templates.size());
+            offset += record.templates.size();
+            results.add(completeRecord(record, own, renderNanos.get(i)));
+        }
+        return results;
+    }
+
+    /**
+     * Espera los documentos de un record y arma su resultado: el input original actualizado con
+     * las rutas generadas (la respuesta se escribe copiando el JSON original del record, que se
+     * vuelve a decodificar al enviar y no se retiene).
      *
-     * @param input SentryMessageInput individual
-     * @return ProcessResult con éxito o error
+     * @param decoded record decodificado
+     * @param documents futuros de sus documentos, en el orden de sus templates
+     * @param renderNanos tiempo de render acumulado de sus documentos
+     * @return ProcessResult con éxito o error, y su costo estimado y real
      */
-    private ProcessResult processMessageFunctional(SentryMessageInput input) {
+    private ProcessResult completeRecord(DecodedRecord decoded, List<CompletableFuture<DocumentResult>> documents,
+                                         LongAdder renderNanos) {
+        KafkaEvent.KafkaEventRecord record = decoded.record;
+        String metadata = String.format("Record Topic %s, Key %s, Offset %d",
+                record.getTopic(), record.getKey(), record.getOffset());
+        if (decoded.errorMessage != null) {
+            return ProcessResult.failure(metadata + ": " + decoded.errorMessage)
+                    .withCost(metadata, decoded.estimatedCostMs, 0);
+        }
+
+        ProcessResult result;
         try {
-            int outputCount = input.getData() != null &&
-                input.getData().getItem_canonico() != null &&
-                input.getData().getItem_canonico().getOutputs() != null
-                    ? input.getData().getItem_canonico().getOutputs().size()
-                    : 0;
+            List<DocumentResult> documentResults = collectDocuments(documents);
+            result = ProcessResult.success(new SentryResponse(
+                    sentryMessageMapper.updateWithGeneratedDocuments(decoded.input, documentResults),
+                    () -> originalJson(record)));
+        } catch (DocumentOverloadedException e) {
+            log.warnf("Record rejected by admission control, the batch will be retried: %s", metadata);
+            result = ProcessResult.overloaded(e);
+        } catch (Exception e) {
+            log.errorf(e, "Error processing message");
+            result = ProcessResult.failure(e.getMessage());
+        }
+        long actualCostMs = TimeUnit.NANOSECONDS.toMillis(renderNanos.sum());
+        log.infof("Processed KAFKA record: Topic=%s, Partition=%d, Offset=%d, Key=%s (render estimated %dms, actual %dms)",
+                record.getTopic(), record.getPartition(), record.getOffset(), record.getKey(),
+                decoded.estimatedCostMs, actualCostMs);
+        return result.withCost(metadata, decoded.estimatedCostMs, actualCostMs);
+    }
 
-            log.debugf("Processing message with %d outputs", outputCount);
+    /**
+     * Espera los documentos de un mensaje. Un documento que excedió su deadline se marca como
+     * fallido solo en su composición; cualquier otro error hace fallar el mensaje completo.
+     *
+     * @param documents futuros de los documentos, en el orden de sus templates
+     * @return resultados en el mismo orden
+     */
+    private List<DocumentResult> collectDocuments(List<CompletableFuture<DocumentResult>> documents) {
+        List<CompletableFuture<DocumentResult>> handled = documents.stream()
+                .map(document -> document.exceptionally(error -> {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    if (cause instanceof DocumentTimeoutException) {
+                        return DocumentResult.failed(cause.getMessage());
+                    }
+                    throw error instanceof CompletionException completion ? completion : new CompletionException(error);
+                }))
+                .toList();
+        return GenerationScheduler.joinAll(handled);
+    }
 
-            // Pipeline funcional (igual que DocumentLambdaResource)
-            List<TemplateRequest> templates = sentryMessageMapper.toTemplateRequest(input);
+    /**
+     * Grupo de un template: su contenido resuelto (mismo fingerprint = mismo reporte compilado) o su ruta.
+     */
+    private String groupKeyOf(TemplateRequest template) {
+        TemplateContent content = template.getResolvedTemplate();
+        return content != null && content.getFingerprint() != null ? content.getFingerprint() : template.getTemplatePath();
+    }
 
-            List<DocumentResult> documentResults = templates.parallelStream()
-                .map(this::generateDocument)
-                .collect(Collectors.toList());
+    /**
+     * Resuelve en paralelo (executor I/O) los templates únicos de todos los records del batch
+     * y los asigna a sus TemplateRequests, de modo que el render ya no descarga nada.
+     * Un template que falla se deja sin resolver: su render lo reintenta (y falla solo ese documento).
+     *
+     * @param decoded records decodificados del batch
+     */
+    private void prefetchTemplates(List<DecodedRecord> decoded) {
+        Set<String> uris = new LinkedHashSet<>();
+        for (DecodedRecord record : decoded) {
+            for (TemplateRequest template : record.templates) {
+                if (template.getResolvedTemplate() == null && !templateRepository.isLocal(template.getTemplatePath())) {
+                    uris.add(template.getTemplatePath());
+                }
+            }
+        }
+        if (uris.isEmpty()) {
+            return;
+        }
 
-            // Actualizar input original con rutas generadas
-            SentryMessageInput updatedInput = sentryMessageMapper
-                .updateWithGeneratedDocuments(input, documentResults);
+        long start = System.currentTimeMillis();
+        List<String> uriList = List.copyOf(uris);
+        List<TemplateContent> contents = generationScheduler.mapAll(uriList, this::prefetchTemplate);
 
-            return ProcessResult.success(updatedInput);
+        Map<String, TemplateContent> resolved = new HashMap<>();
+        for (int i = 0; i < uriList.size(); i++) {
+            if (contents.get(i) != null) {
+                resolved.put(uriList.get(i), contents.get(i));
+            }
+        }
+        for (DecodedRecord record : decoded) {
+            for (TemplateRequest template : record.templates) {
+                TemplateContent content = resolved.get(template.getTemplatePath());
+                if (content != null && template.getResolvedTemplate() == null) {
+                    template.setResolvedTemplate(content);
+                }
+            }
+        }
+        log.infof("Prefetched %d/%d template(s) for the batch in %d ms",
+                resolved.size(), uriList.size(), System.currentTimeMillis() - start);
+    }
 
+    private TemplateContent prefetchTemplate(String uri) {
+        try {
+            return templateRepository.getTemplateContent(uri);
         } catch (Exception e) {
-            log.errorf(e, "Error processing message");
-            return ProcessResult.failure(e.getMessage());
+            log.warnf("Could not prefetch template %s: %s", LogSanitizer.sanitizeTemplatePath(uri), e.getMessage());
+            return null;
         }
     }
 
+    /**
+     * Render de un documento que acumula su tiempo en el record al que pertenece.
+     *
+     * @param renderNanos acumula el tiempo de render de los documentos del record
+     */
+    private Function<TemplateRequest, DocumentResult> timedRender(LongAdder renderNanos) {
+        return template -> {
+            long start = System.nanoTime();
+            try {
+                return generateDocument(template);
+            } finally {
+                renderNanos.add(System.nanoTime() - start);
+            }
+        };
+    }
+
+    /**
+     * Abre el JSON original de un record, decodificando su valor Base64 al leer.
+     * Se usa al decodificar el record y de nuevo al escribir su respuesta.
+     */
+    private static InputStream originalJson(KafkaEvent.KafkaEventRecord record) {
+        return Base64.getDecoder().wrap(
+                new ByteArrayInputStream(record.getValue().getBytes(StandardCharsets.ISO_8859_1)));
+    }
+
     /**
      * Genera un documento individual.
      * Función pura - mismo input produce mismo output.
@@ -220,6 +481,11 @@ public class LambdaMskEventHandler {
         log.debugf("Generating document - template: %s, format: %s",
             LogSanitizer.sanitizeTemplatePath(template.getTemplatePath()), template.getFileType());
 
+        // Los requests persistidos sin sink siguen yendo al repositorio (ver TemplateRequest#resolveSink)
+        if (template.getSink() == null && !template.isPersist()) {
+            template.setSink(defaultSink);
+        }
+
         String pathFile = generateFilename(template.getFileType());
         DocumentResult result = generateDocumentUseCase.execute(template, pathFile);
 
@@ -241,27 +507,86 @@ public class LambdaMskEventHandler {
         return tempDirectory + File.separator + name.toString() + "." + extension;
     }
 
+    /**
+     * Record de Kafka decodificado, con sus templates y su costo estimado de render.
+     */
+    private static class DecodedRecord {
+        final KafkaEvent.KafkaEventRecord record;
+        final SentryMessageInput input;
+        final List<TemplateRequest> templates;
+        final long estimatedCostMs;
+        final String errorMessage;
+
+        private DecodedRecord(KafkaEvent.KafkaEventRecord record, SentryMessageInput input,
+                              List<TemplateRequest> templates, long estimatedCostMs, String errorMessage) {
+            this.record = record;
+            this.input = input;
+            this.templates = templates;
+            this.estimatedCostMs = estimatedCostMs;
+            this.errorMessage = errorMessage;
+        }
+
+        static DecodedRecord decoded(KafkaEvent.KafkaEventRecord record, SentryMessageInput input,
+                                     List<TemplateRequest> templates, long estimatedCostMs) {
+            return new DecodedRecord(record, input, templates, estimatedCostMs, null);
+        }
+
+        static DecodedRecord failed(KafkaEvent.KafkaEventRecord record, String errorMessage) {
+            return new DecodedRecord(record, null, List.of(), 0, errorMessage);
+        }
+    }
+
     /**
      * Clase interna para resultado de procesamiento.
      * Inmutable para programación funcional.
      */
     private static class ProcessResult {
         final boolean success;
-        final SentryMessageInput result;
+        final SentryResponse result;
         final String errorMessage;
-
-        private ProcessResult(boolean success, SentryMessageInput result, String errorMessage) {
+        final String metadata;
+        final long estimatedCostMs;
+        final long actualCostMs;
+        final DocumentOverloadedException overload;
+
+        private ProcessResult(boolean success, SentryResponse result, String errorMessage,
+                              String metadata, long estimatedCostMs, long actualCostMs,
+                              DocumentOverloadedException overload) {
             this.success = success;
             this.result = result;
             this.errorMessage = errorMessage;
+            this.metadata = metadata;
+            this.estimatedCostMs = estimatedCostMs;
+            this.actualCostMs = actualCostMs;
+            this.overload = overload;
         }
 
-        static ProcessResult success(SentryMessageInput result) {
-            return new ProcessResult(true, result, null);
+        static ProcessResult success(SentryResponse result) {
+            return new ProcessResult(true, result, null, null, 0, 0, null);
         }
 
         static ProcessResult failure(String errorMessage) {
-            return new ProcessResult(false, null, errorMessage);
+            return new ProcessResult(false, null, errorMessage, null, 0, 0, null);
+        }
+
+        /**
+         * Record que no se pudo generar por sobrecarga: se debe reintentar, no publicar como error.
+         */
+        static ProcessResult overloaded(DocumentOverloadedException overload) {
+            return new ProcessResult(false, null, overload.getMessage(), null, 0, 0, overload);
+        }
+
+        ProcessResult withCost(String metadata, long estimatedCostMs, long actualCostMs) {
+            return new ProcessResult(success, result, errorMessage, metadata, estimatedCostMs, actualCostMs, overload);
+        }
+
+        Map<String, Object> costReport() {
+            Map<String, Object> report = new HashMap<>();
+            report.put("record", metadata);
+            report.put("success", success);
+            report.put("estimatedCostMs", estimatedCostMs);
+            report.put("actualCostMs", actualCostMs);
+            return report;
         }
     }
 }
@@ -1,9 +1,11 @@
 package pe.soapros.document.infrastructure.lambda.rest;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.github.f4b6a3.ulid.Ulid;
 import com.github.f4b6a3.ulid.UlidCreator;
 import io.smallrye.common.annotation.Blocking;
+import jakarta.annotation.PostConstruct;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
@@ -12,19 +14,27 @@ import lombok.extern.jbosslog.JBossLog;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import pe.soapros.document.application.GenerateDocumentUseCase;
 import pe.soapros.document.domain.DocumentResult;
+import pe.soapros.document.domain.DocumentSink;
 import pe.soapros.document.domain.TemplateRequest;
 import pe.soapros.document.domain.exception.DocumentGenerationException;
+import pe.soapros.document.domain.exception.InvalidTemplateDataException;
+import pe.soapros.document.infrastructure.generation.GenerationScheduler;
+import pe.soapros.document.infrastructure.generation.input.RawJson;
 import pe.soapros.document.infrastructure.generation.input.SentryMessageInput;
 import pe.soapros.document.infrastructure.mapper.SentryMessageMapper;
+import pe.soapros.document.infrastructure.mapper.SentryResponse;
+import pe.soapros.document.infrastructure.mapper.SentryResponseWriter;
 import pe.soapros.document.infrastructure.util.LogSanitizer;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
 import java.util.List;
 
 /**
  * REST endpoint for document generation.
  * Supports multiple output formats (PDF, HTML, TXT) based on request data.
- * Returns the same SentryMessageInput with result.location populated.
+ * Returns the same Sentry message with result.location populated.
  */
 @Path("/generate")
 @JBossLog
@@ -39,25 +49,55 @@ public class DocumentLambdaResource {
     @Inject
     SentryMessageMapper sentryMessageMapper;
 
+    @Inject
+    SentryResponseWriter responseWriter;
+
+    @Inject
+    GenerationScheduler generationScheduler;
+
     @ConfigProperty(name = "app.generation.temp", defaultValue = "/temp")
     String tempDirectory;
 
+    /**
+     * Sink of the non-persisted requests (LOCAL_FILE keeps returning an "fs@" location).
+     * The Sentry message has no field to choose a sink, so for this endpoint it is a deployment
+     * setting; persisted requests keep going to the repository. MEMORY is rejected: the response
+     * only carries the document location, the bytes would be lost.
+     */
+    @ConfigProperty(name = "app.generation.sink.rest", defaultValue = "LOCAL_FILE")
+    DocumentSink defaultSink;
+
+    private ObjectReader messageReader;
+
+    @PostConstruct
+    void init() {
+        if (defaultSink == DocumentSink.MEMORY) {
+            throw new IllegalStateException(
+                    "app.generation.sink.rest=MEMORY is not supported: the response only carries the document location");
+        }
+        // The response is copied from the request body, so raw sections are skipped while reading
+        messageReader = RawJson.skippingReader(objectMapper, SentryMessageInput.class);
+    }
+
     /**
      * Generates one or more documents from Sentry message template data.
      * The output format (PDF, HTML, TXT) is determined by the fileType field in each request.
      *
-     * Returns the same SentryMessageInput structure with result.location populated
-     * with the path of the generated document (local or S3 if persisted).
+     * Returns the same Sentry message with result.location populated with the path of the
+     * generated document (local or S3 if persisted). The response is the request body copied
+     * token by token with only the results rewritten (see {@link SentryResponseWriter}).
      *
-     * @param input the Sentry message containing template data, variables, images, and formats
-     * @return Response containing the same SentryMessageInput with result.location updated
+     * @param body the Sentry message (JSON) containing template data, variables, images, and formats
+     * @return Response containing the same message with result.location updated
      * @throws DocumentGenerationException if document generation fails (handled by DomainExceptionMapper)
      */
     @POST
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
     @Blocking
-    public Response generate(SentryMessageInput input) throws DocumentGenerationException {
+    public Response generate(byte[] body) throws DocumentGenerationException {
+        SentryMessageInput input = readMessage(body);
+
         int outputCount = 0;
         if (input.getData() != null &&
             input.getData().getItem_canonico() != null &&
@@ -70,33 +110,30 @@ public class DocumentLambdaResource {
         List<TemplateRequest> templates = sentryMessageMapper.toTemplateRequest(input);
         log.infof("Generating %d documents", templates.size());
 
-        // Generar cada documento (retorna DocumentResult con bytes y paths)
-        List<DocumentResult> results = templates.stream()
-                .map(this::generateDocument)
-                .toList();
+        // Generar cada documento (retorna DocumentResult con bytes y paths):
+        // descarga de templates en el executor I/O, render en el pool CPU, en el orden de entrada
+        List<DocumentResult> results = generationScheduler.generateAll(
+                templates, this::generateDocument);
 
-        log.infof("Successfully generated %d documents", results.size());
+        log.infof("Successfully generated %d documents (%s)", results.size(), generationScheduler.describeLoad());
 
         // Actualizar el input original con las rutas de los documentos generados
         SentryMessageInput responseMessage = sentryMessageMapper.updateWithGeneratedDocuments(input, results);
 
         // Retornar el mismo mensaje con result.location actualizado
-        //return Response.ok(responseMessage).build();
         try {
-            log.debug("Iniciando serialización JSON manual para evitar el proveedor JAX-RS.");
+            // Copia del body original reescribiendo solo los resultados (sin re-serializar el mensaje)
+            byte[] jsonBytes = responseWriter.writeAsBytes(
+                    new SentryResponse(responseMessage, () -> new ByteArrayInputStream(body)));
 
-            // Convertir el objeto final a un array de bytes
-            byte[] jsonBytes = objectMapper.writeValueAsBytes(responseMessage);
+            log.infof("JSON de respuesta escrito (%d bytes).", jsonBytes.length);
 
-            log.infof("JSON de respuesta serializado manualmente (%d bytes).", jsonBytes.length);
-
-            // 3. Devolver los bytes directamente con el MediaType correcto
             return Response.ok(jsonBytes)
                     .type(MediaType.APPLICATION_JSON_TYPE)
                     .build();
 
         } catch (Exception e) {
-            log.errorf(e, "CRÍTICO: Fallo durante la serialización JSON manual de la respuesta.");
+            log.errorf(e, "CRÍTICO: Fallo durante la escritura JSON de la respuesta.");
 
             // Retornar un error 500 simple si la serialización falla
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
@@ -106,6 +143,24 @@ public class DocumentLambdaResource {
         }
     }
 
+    /**
+     * Deserializes the request body (kept as bytes so the response can be copied from it).
+     *
+     * @param body the request body
+     * @return the Sentry message
+     * @throws InvalidTemplateDataException if the body is not a valid Sentry message
+     */
+    private SentryMessageInput readMessage(byte[] body) {
+        if (body == null || body.length == 0) {
+            throw new InvalidTemplateDataException("Request body is empty");
+        }
+        try {
+            return messageReader.readValue(body);
+        } catch (IOException e) {
+            throw new InvalidTemplateDataException("Invalid JSON body", e);
+        }
+    }
+
     /**
      * Generates a single document from a TemplateRequest.
      *
@@ -122,6 +177,11 @@ public class DocumentLambdaResource {
                 template.getImages() != null && !template.getImages().isEmpty(),
                 template.isPersist());
 
+        // Persisted requests without a sink keep going to the repository (see TemplateRequest#resolveSink)
+        if (template.getSink() == null && !template.isPersist()) {
+            template.setSink(defaultSink);
+        }
+
         String pathFile = generateFilename(template.getFileType());
         log.debugf("Generated filename: %s", LogSanitizer.sanitizePath(pathFile));
 
@@ -129,7 +189,7 @@ public class DocumentLambdaResource {
 
         String filename = new File(pathFile).getName();
         log.debugf("Document generated: %s (%s)", filename,
-            LogSanitizer.sanitizeByteCount(result.getDocumentBytes().length));
+            LogSanitizer.sanitizeByteCount(result.getSize()));
 
         // Log repository path if document was persisted
         if (result.getRepositoryPath() != null) {
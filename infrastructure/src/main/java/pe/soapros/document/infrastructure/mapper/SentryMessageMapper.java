@@ -1,16 +1,19 @@
 package pe.soapros.document.infrastructure.mapper;
 
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import pe.soapros.document.domain.DocumentResult;
 import pe.soapros.document.domain.TemplateRequest;
 import pe.soapros.document.domain.exception.InvalidTemplateDataException;
+import pe.soapros.document.infrastructure.generation.context.JsonTemplateData;
 import pe.soapros.document.infrastructure.generation.input.SentryMessageInput;
 
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -66,17 +69,18 @@ public class SentryMessageMapper {
                                 String s3Location = composition.getMetadata().getResource().getLocation();
 
                                 JsonNode templateDataNode = composition.getMetadata().getResource().getData();
-                                if (templateDataNode == null || templateDataNode.isNull()) {
+                                if (templateDataNode == null || !templateDataNode.isObject()) {
                                     throw new InvalidTemplateDataException("El nodo de datos de la plantilla está vacío.");
                                 }
-                                Map<String, Object> dataMap = objectMapper.convertValue(templateDataNode, new TypeReference<Map<String, Object>>() {});
+                                // Se conserva el JSON original: el Map solo se construye (como vista) si un generador lo pide
+                                JsonTemplateData templateData = new JsonTemplateData((ObjectNode) templateDataNode, objectMapper);
 
                                 // Extraer imágenes si existen
                                 Map<String, String> imagesMap = extractImages(templateDataNode);
 
                                 TemplateRequest request = new TemplateRequest();
                                 request.setTemplatePath(s3Location);
-                                request.setData(dataMap);
+                                request.setTemplateData(templateData);
                                 request.setImages(imagesMap);
                                 request.setFileType(composition.getMetadata().getResource().getOutput_format());
                                 return request;
@@ -114,24 +118,35 @@ public class SentryMessageMapper {
 
     /**
      * Extrae el mapa de imágenes (Base64) del nodo de datos si existe.
+     * Los valores son los mismos String del árbol JSON: no se vuelve a convertir el nodo.
      */
     private Map<String, String> extractImages(JsonNode dataNode) {
         // El JSON de ejemplo tiene un nodo 'images' dentro del nodo 'data' principal.
-        if (dataNode.has("images") && dataNode.get("images").isObject()) {
-            try {
-                return objectMapper.convertValue(dataNode.get("images"), new TypeReference<Map<String, String>>() {});
-            } catch (IllegalArgumentException e) {
-                // El log ya capturaría el error en la generación, pero devolvemos vacío para no fallar el mapeo inicial
+        JsonNode imagesNode = dataNode.get("images");
+        if (imagesNode == null || !imagesNode.isObject() || imagesNode.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, String> images = new LinkedHashMap<>();
+        Iterator<Map.Entry<String, JsonNode>> fields = imagesNode.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            JsonNode value = field.getValue();
+            if (value.isValueNode()) {
+                images.put(field.getKey(), value.isNull() ? null : value.asText());
+            } else {
+                // Mismo criterio que antes: un valor no escalar invalida el mapa de imágenes
+                // (el log ya capturaría el error en la generación, no fallamos el mapeo inicial)
                 return Collections.emptyMap();
             }
         }
-        return Collections.emptyMap();
+        return images;
     }
 
     /**
      * Actualiza el SentryMessageInput original con las rutas de los documentos generados.
      * Modifica el campo 'result.location' de cada composición con la ruta del documento generado
-     * (puede ser local o S3 si fue persistido).
+     * (puede ser local o S3 si fue persistido). Si el documento de una composición falló
+     * (ej: timeout), su location queda en null y 'result.error' indica el motivo.
      *
      * IMPORTANTE: El orden de los resultados debe coincidir con el orden en que se generaron
      * los documentos (mismo orden que toTemplateRequest()).
@@ -196,6 +211,7 @@ public class SentryMessageMapper {
                         : result.getLocalPath();
 
                 composition.getMetadata().getResult().setLocation(documentPath);
+                composition.getMetadata().getResult().setError(result.getErrorMessage());
 
                 resultIndex++;
             }
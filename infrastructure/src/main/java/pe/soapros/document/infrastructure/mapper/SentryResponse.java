@@ -0,0 +1,16 @@
+package pe.soapros.document.infrastructure.mapper;
+
+import pe.soapros.document.infrastructure.generation.input.SentryMessageInput;
+
+import java.io.InputStream;
+import java.util.function.Supplier;
+
+/**
+ * Respuesta de un mensaje de Sentry: el input ya actualizado con los resultados y el JSON
+ * original del que {@link SentryResponseWriter} copia todo lo demás.
+ *
+ * @param message el mensaje actualizado por {@link SentryMessageMapper#updateWithGeneratedDocuments}
+ * @param source abre el JSON original del mensaje (null = serializar el mensaje completo)
+ */
+public record SentryResponse(SentryMessageInput message, Supplier<InputStream> source) {
+}
@@ -0,0 +1,304 @@
+package pe.soapros.document.infrastructure.mapper;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.SegmentedStringWriter;
+import com.fasterxml.jackson.core.util.BufferRecycler;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import pe.soapros.document.infrastructure.generation.input.SentryMessageInput;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Escribe la respuesta de un mensaje de Sentry copiando el JSON original token por token
+ * (parser → generator) y reescribiendo solo 'metadata.result' de cada composición.
+ *
+ * El costo es una copia lineal del mensaje: no se serializa el grafo de objetos ni se construyen
+ * árboles (clienteData, data de las plantillas...). Dentro de 'result' solo se reemplazan
+ * 'location' y 'error'; el resto de campos del original se conserva tal cual, y si una
+ * composición no trae 'metadata' o 'result' se agregan al final.
+ *
+ * Las composiciones se emparejan por posición con las del mensaje actualizado (mismo recorrido
+ * outputs → composicion que {@link SentryMessageMapper}).
+ */
+@ApplicationScoped
+public class SentryResponseWriter {
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    /**
+     * Escribe la respuesta como bytes UTF-8.
+     *
+     * @param response el mensaje actualizado y su JSON original
+     * @return el JSON de respuesta
+     * @throws IOException si el JSON original no se puede leer
+     */
+    public byte[] writeAsBytes(SentryResponse response) throws IOException {
+        if (response.source() == null) {
+            return objectMapper.writeValueAsBytes(response.message());
+        }
+        JsonFactory factory = objectMapper.getFactory();
+        try (ByteArrayBuilder out = new ByteArrayBuilder()) {
+            try (InputStream source = response.source().get();
+                 JsonParser parser = factory.createParser(source);
+                 JsonGenerator generator = factory.createGenerator(out, JsonEncoding.UTF8)) {
+                write(parser, generator, response.message());
+            }
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * Escribe la respuesta como String (para los emitters de Kafka).
+     *
+     * @param response el mensaje actualizado y su JSON original
+     * @return el JSON de respuesta
+     * @throws IOException si el JSON original no se puede leer
+     */
+    public String writeAsString(SentryResponse response) throws IOException {
+        if (response.source() == null) {
+            return objectMapper.writeValueAsString(response.message());
+        }
+        JsonFactory factory = objectMapper.getFactory();
+        SegmentedStringWriter out = new SegmentedStringWriter(new BufferRecycler());
+        try (InputStream source = response.source().get();
+             JsonParser parser = factory.createParser(source);
+             JsonGenerator generator = factory.createGenerator(out)) {
+            write(parser, generator, response.message());
+        }
+        return out.getAndClear();
+    }
+
+    private void write(JsonParser parser, JsonGenerator generator, SentryMessageInput message) throws IOException {
+        Iterator<SentryMessageInput.ComposicionNode> compositions = compositionsOf(message).iterator();
+        parser.nextToken();
+        // Recorrido: data → item_canonico → outputs[] → composicion[]
+        copyObjectValue(parser, generator, name -> "data".equals(name)
+                ? (p, g) -> copyObjectValue(p, g, dataName -> "item_canonico".equals(dataName)
+                        ? (p2, g2) -> copyItemCanonico(p2, g2, compositions)
+                        : null)
+                : null);
+    }
+
+    private void copyItemCanonico(JsonParser parser, JsonGenerator generator,
+                                  Iterator<SentryMessageInput.ComposicionNode> compositions) throws IOException {
+        copyObjectValue(parser, generator, name -> "outputs".equals(name)
+                ? (p, g) -> copyElements(p, g, (output, g2) -> copyOutput(output, g2, compositions))
+                : null);
+    }
+
+    private void copyOutput(JsonParser parser, JsonGenerator generator,
+                            Iterator<SentryMessageInput.ComposicionNode> compositions) throws IOException {
+        copyObjectValue(parser, generator, name -> "composicion".equals(name)
+                ? (p, g) -> copyElements(p, g, (composition, g2) -> copyComposition(composition, g2, next(compositions)))
+                : null);
+    }
+
+    /**
+     * Copia una composición reescribiendo su 'metadata.result'.
+     */
+    private void copyComposition(JsonParser parser, JsonGenerator generator,
+                                 SentryMessageInput.ComposicionNode composition) throws IOException {
+        SentryMessageInput.ResultNode result = composition != null && composition.getMetadata() != null
+                ? composition.getMetadata().getResult() : null;
+        if (result == null || parser.currentToken() != JsonToken.START_OBJECT) {
+            generator.copyCurrentStructure(parser);
+            return;
+        }
+
+        boolean[] metadataSeen = {false};
+        generator.writeStartObject();
+        copyFields(parser, generator, name -> "metadata".equals(name)
+                ? (p, g) -> {
+                    metadataSeen[0] = true;
+                    copyMetadata(p, g, result);
+                }
+                : null);
+        if (!metadataSeen[0]) {
+            generator.writeFieldName("metadata");
+            generator.writeStartObject();
+            writeResult(generator, result);
+            generator.writeEndObject();
+        }
+        generator.writeEndObject();
+    }
+
+    private void copyMetadata(JsonParser parser, JsonGenerator generator,
+                              SentryMessageInput.ResultNode result) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            // 'metadata' no es un objeto (ej: null): se reemplaza por uno con el resultado
+            parser.skipChildren();
+            generator.writeStartObject();
+            writeResult(generator, result);
+            generator.writeEndObject();
+            return;
+        }
+
+        boolean[] resultSeen = {false};
+        generator.writeStartObject();
+        copyFields(parser, generator, name -> "result".equals(name)
+                ? (p, g) -> {
+                    resultSeen[0] = true;
+                    copyResult(p, g, result);
+                }
+                : null);
+        if (!resultSeen[0]) {
+            writeResult(generator, result);
+        }
+        generator.writeEndObject();
+    }
+
+    private void copyResult(JsonParser parser, JsonGenerator generator,
+                            SentryMessageInput.ResultNode result) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            writeResultObject(generator, result);
+            return;
+        }
+
+        boolean[] errorSeen = {false};
+        boolean[] locationSeen = {false};
+        generator.writeStartObject();
+        copyFields(parser, generator, name -> switch (name) {
+            case "location" -> (p, g) -> {
+                locationSeen[0] = true;
+                p.skipChildren();
+                g.writeString(result.getLocation());
+            };
+            case "error" -> (p, g) -> {
+                errorSeen[0] = true;
+                p.skipChildren();
+                if (result.getError() != null) {
+                    g.writeString(result.getError());
+                } else {
+                    g.writeNull();
+                }
+            };
+            default -> null;
+        });
+        if (!locationSeen[0]) {
+            generator.writeStringField("location", result.getLocation());
+        }
+        if (!errorSeen[0] && result.getError() != null) {
+            generator.writeStringField("error", result.getError());
+        }
+        generator.writeEndObject();
+    }
+
+    private void writeResult(JsonGenerator generator, SentryMessageInput.ResultNode result) throws IOException {
+        generator.writeFieldName("result");
+        writeResultObject(generator, result);
+    }
+
+    private void writeResultObject(JsonGenerator generator, SentryMessageInput.ResultNode result) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("location", result.getLocation());
+        if (result.getError() != null) {
+            generator.writeStringField("error", result.getError());
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * Copia el valor actual: si es un objeto, con el manejo indicado para algunos de sus campos.
+     */
+    private void copyObjectValue(JsonParser parser, JsonGenerator generator, FieldHandlers handlers) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            generator.copyCurrentStructure(parser);
+            return;
+        }
+        copyObject(parser, generator, handlers);
+    }
+
+    private void copyObject(JsonParser parser, JsonGenerator generator, FieldHandlers handlers) throws IOException {
+        generator.writeStartObject();
+        copyFields(parser, generator, handlers);
+        generator.writeEndObject();
+    }
+
+    /**
+     * Copia los campos del objeto actual (el parser está en START_OBJECT) hasta su END_OBJECT,
+     * sin escribir las llaves del objeto.
+     */
+    private void copyFields(JsonParser parser, JsonGenerator generator, FieldHandlers handlers) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            generator.writeFieldName(name);
+            parser.nextToken();
+            ValueCopier copier = handlers.forField(name);
+            if (copier != null) {
+                copier.copy(parser, generator);
+            } else {
+                generator.copyCurrentStructure(parser);
+            }
+        }
+    }
+
+    /**
+     * Copia un arreglo aplicando el copier a cada elemento. Un objeto suelto se trata como un
+     * arreglo de un elemento (ACCEPT_SINGLE_VALUE_AS_ARRAY, igual que al deserializar).
+     */
+    private void copyElements(JsonParser parser, JsonGenerator generator, ValueCopier element) throws IOException {
+        if (parser.currentToken() == JsonToken.START_OBJECT) {
+            element.copy(parser, generator);
+            return;
+        }
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            generator.copyCurrentStructure(parser);
+            return;
+        }
+        generator.writeStartArray();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            element.copy(parser, generator);
+        }
+        generator.writeEndArray();
+    }
+
+    /**
+     * Composiciones del mensaje en el orden en que aparecen en el JSON (incluye las nulas).
+     */
+    private static List<SentryMessageInput.ComposicionNode> compositionsOf(SentryMessageInput message) {
+        List<SentryMessageInput.ComposicionNode> compositions = new ArrayList<>();
+        if (message == null || message.getData() == null || message.getData().getItem_canonico() == null
+                || message.getData().getItem_canonico().getOutputs() == null) {
+            return compositions;
+        }
+        for (SentryMessageInput.OutputNode output : message.getData().getItem_canonico().getOutputs()) {
+            if (output != null && output.getComposicion() != null) {
+                compositions.addAll(output.getComposicion());
+            }
+        }
+        return compositions;
+    }
+
+    private static SentryMessageInput.ComposicionNode next(Iterator<SentryMessageInput.ComposicionNode> compositions) {
+        return compositions.hasNext() ? compositions.next() : null;
+    }
+
+    @FunctionalInterface
+    private interface ValueCopier {
+        /**
+         * Copia el valor actual del parser (ya posicionado en su primer token).
+         */
+        void copy(JsonParser parser, JsonGenerator generator) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface FieldHandlers {
+        /**
+         * @return cómo copiar el valor del campo, o null para copiarlo tal cual
+         */
+        ValueCopier forField(String name);
+    }
+}
@@ -3,9 +3,11 @@ package pe.soapros.document.infrastructure.mapper;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import pe.soapros.document.domain.TemplateRequest;
+import pe.soapros.document.infrastructure.generation.context.JsonTemplateData;
 
 import java.util.Map;
 
@@ -30,9 +32,13 @@ public class TemplateDataMapper {
      * @return TemplateRequest configurado
      */
     public TemplateRequest from(JsonNode data, Map<String, String> images, String path) {
-        Map<String, Object> dataMap = objectMapper.convertValue(data, new TypeReference<Map<String, Object>>() {});
         TemplateRequest request = new TemplateRequest();
-        request.setData(dataMap);
+        if (data instanceof ObjectNode object) {
+            // Sin copia: el Map se construye como vista solo si un generador lo pide
+            request.setTemplateData(new JsonTemplateData(object, objectMapper));
+        } else {
+            request.setData(objectMapper.convertValue(data, new TypeReference<Map<String, Object>>() {}));
+        }
         request.setImages(images);
         request.setTemplatePath(path);
         return request;
@@ -0,0 +1,196 @@
+package pe.soapros.document.infrastructure.repository;
+
+import lombok.extern.jbosslog.JBossLog;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * In-memory index of the template disk cache.
+ *
+ * Tracks size, last validation (download or revalidation) and last access of every cached
+ * template file, so that eviction never has to list or stat the cache directory. The
+ * directory is scanned once at startup to adopt files left by a previous process.
+ *
+ * Validator sidecars ({file}.meta) are not indexed: they are deleted with their template.
+ * Lock files are never deleted (see the locking protocol of {@link InfraTemplateRepository}).
+ */
+@JBossLog
+class DiskCacheIndex {
+
+    private static final long STALE_TEMP_FILE_MS = 60 * 60 * 1000L;
+
+    private final File cacheDir;
+    private final String validatorSuffix;
+    private final String lockSuffix;
+    private final String tempSuffix;
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+
+    DiskCacheIndex(File cacheDir, String validatorSuffix, String lockSuffix, String tempSuffix) {
+        this.cacheDir = cacheDir;
+        this.validatorSuffix = validatorSuffix;
+        this.lockSuffix = lockSuffix;
+        this.tempSuffix = tempSuffix;
+    }
+
+    /**
+     * Indexes the files already present in the cache directory and deletes temporary
+     * files abandoned by crashed downloads.
+     */
+    void load() {
+        File[] files = cacheDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        long staleBefore = System.currentTimeMillis() - STALE_TEMP_FILE_MS;
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(tempSuffix)) {
+                if (file.lastModified() < staleBefore) {
+                    file.delete();
+                }
+            } else if (file.isFile() && isTemplateFile(name)) {
+                put(name, file.length(), file.lastModified(), file.lastModified());
+            }
+        }
+        if (!entries.isEmpty()) {
+            log.infof("Template disk cache index loaded: %d file(s), %d bytes", entries.size(), totalBytes.get());
+        }
+    }
+
+    /**
+     * Records a file that has just been downloaded or revalidated.
+     *
+     * @param file the cached file
+     */
+    void recordValidated(File file) {
+        long now = System.currentTimeMillis();
+        put(file.getName(), file.length(), now, now);
+    }
+
+    /**
+     * Records a read of an indexed file without touching the filesystem.
+     *
+     * @param fileName the cached file name
+     */
+    void recordAccess(String fileName) {
+        Entry entry = entries.get(fileName);
+        if (entry != null) {
+            entry.lastAccess = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Records a read of a cached file (drives the LRU order of the size cap).
+     * Files published by another process sharing the directory are adopted on first access.
+     *
+     * @param file the cached file
+     */
+    void recordAccess(File file) {
+        Entry entry = entries.get(file.getName());
+        if (entry != null) {
+            entry.lastAccess = System.currentTimeMillis();
+        } else if (file.exists()) {
+            put(file.getName(), file.length(), file.lastModified(), System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * @return total bytes of the indexed templates
+     */
+    long totalBytes() {
+        return totalBytes.get();
+    }
+
+    /**
+     * @return number of indexed templates
+     */
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Deletes templates not validated within the retention period, then the least recently
+     * accessed ones until the total size is under the cap.
+     *
+     * @param retention how long an entry is kept after its last validation
+     * @param maxBytes maximum total bytes of the cache
+     * @param inUse files that must not be deleted now (e.g. download in flight)
+     * @return number of deleted templates
+     */
+    int evict(Duration retention, long maxBytes, Predicate<String> inUse) {
+        long now = System.currentTimeMillis();
+        long expiredBefore = now - retention.toMillis();
+        int deleted = 0;
+
+        List<String> candidates = new ArrayList<>(entries.keySet());
+        for (String name : candidates) {
+            Entry entry = entries.get(name);
+            if (entry != null && entry.validatedAt < expiredBefore && !inUse.test(name)) {
+                deleted += delete(name, entry) ? 1 : 0;
+            }
+        }
+
+        if (totalBytes.get() > maxBytes) {
+            // Snapshot the access times: they keep changing while we sort
+            List<Map.Entry<String, Long>> byLastAccess = new ArrayList<>();
+            entries.forEach((name, entry) -> byLastAccess.add(Map.entry(name, entry.lastAccess)));
+            byLastAccess.sort(Map.Entry.comparingByValue());
+            for (Map.Entry<String, Long> candidate : byLastAccess) {
+                if (totalBytes.get() <= maxBytes) {
+                    break;
+                }
+                String name = candidate.getKey();
+                Entry entry = entries.get(name);
+                if (entry != null && !inUse.test(name)) {
+                    deleted += delete(name, entry) ? 1 : 0;
+                }
+            }
+        }
+        return deleted;
+    }
+
+    private boolean isTemplateFile(String name) {
+        return !name.endsWith(validatorSuffix) && !name.endsWith(lockSuffix);
+    }
+
+    private void put(String name, long size, long validatedAt, long lastAccess) {
+        Entry previous = entries.put(name, new Entry(size, validatedAt, lastAccess));
+        totalBytes.addAndGet(size - (previous != null ? previous.size : 0));
+    }
+
+    private boolean delete(String name, Entry entry) {
+        if (!entries.remove(name, entry)) {
+            // Re-downloaded meanwhile: keep it
+            return false;
+        }
+        totalBytes.addAndGet(-entry.size);
+
+        File file = new File(cacheDir, name);
+        boolean deleted = file.delete() || !file.exists();
+        new File(cacheDir, name + validatorSuffix).delete();
+        log.debugf("Evicted cached template: %s (%d bytes)", name, entry.size);
+        return deleted;
+    }
+
+    private static final class Entry {
+        final long size;
+        final long validatedAt;
+        volatile long lastAccess;
+
+        Entry(long size, long validatedAt, long lastAccess) {
+            this.size = size;
+            this.validatedAt = validatedAt;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
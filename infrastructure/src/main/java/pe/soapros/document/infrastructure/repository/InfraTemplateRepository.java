@@ -1,22 +1,48 @@
 package pe.soapros.document.infrastructure.repository;
 
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import lombok.extern.jbosslog.JBossLog;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import pe.soapros.document.domain.TemplateContent;
 import pe.soapros.document.domain.TemplateRepository;
 import pe.soapros.document.domain.exception.TemplateNotFoundException;
+import pe.soapros.document.infrastructure.repository.downloader.RevalidationResult;
 import pe.soapros.document.infrastructure.repository.downloader.TemplateDownloader;
 import pe.soapros.document.infrastructure.repository.downloader.TemplateDownloaderFactory;
+import pe.soapros.document.infrastructure.repository.downloader.TemplateSourceNotFoundException;
+import pe.soapros.document.infrastructure.repository.downloader.TemplateValidator;
+import pe.soapros.document.infrastructure.util.BoundedLruCache;
 import pe.soapros.document.infrastructure.util.LogSanitizer;
+import pe.soapros.document.infrastructure.util.SingleFlight;
+import pe.soapros.document.infrastructure.util.Util;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.security.MessageDigest;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.HashMap;
 import java.util.HexFormat;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Multi-protocol template repository with intelligent caching.
@@ -28,11 +54,29 @@ import java.util.HexFormat;
  * - https@https://url    - HTTP(S) download
  * - (no prefix)          - Classpath/relative path
  *
- * Cache Strategy:
- * - Downloaded templates are cached locally for 2 hours
- * - After 2 hours, they are automatically re-downloaded
+ * Cache Strategy (two tiers):
+ * - Memory tier: template bytes + fingerprint, LRU bounded by total bytes
+ *   (app.templates.cache.memory.max-bytes). Served by getTemplateContent() without any filesystem access.
+ * - Disk tier: downloaded templates are cached locally for 2 hours
+ * - After 2 hours, they are revalidated with a conditional request (ETag / Last-Modified /
+ *   mtime, persisted in a {file}.meta sidecar); only changed templates are downloaded again
+ * - Expired files are kept for revalidation and deleted after 24 hours without validation
+ * - Negative cache: failed downloads are remembered for a short TTL (longer for missing
+ *   templates than for transient errors), so records referencing a bad template fail fast
+ * - Total disk usage is capped (app.templates.cache.disk.max-bytes, LRU); eviction runs in
+ *   background over an in-memory index of the cached files
  * - Cache is stored in: /tmp/templates-cache/
  *
+ * Concurrency:
+ * - The cache directory can be shared by several JVMs (same host or shared volume):
+ *   refreshes run under a per-entry file lock and new versions are published with an
+ *   atomic rename, so there are no corrupted reads nor duplicate downloads
+ * - Downloads and memory-tier loads are coalesced per URI (single-flight): when many
+ *   workers miss the same template at once, exactly one of them downloads it and the
+ *   others wait for its result
+ * - Accesses are counted per URI so that {@link TemplateCacheRefresher} can revalidate
+ *   hot templates in the background shortly before their TTL expires
+ *
  * Examples:
  * - s3@pe.nexux.talos.dev:2.0/capacniam/bn_ripley/template_producto/10_112.odt
  * - fs@/shared/templates/plantilla.docx
@@ -46,8 +90,213 @@ public class InfraTemplateRepository implements TemplateRepository {
     @Inject
     TemplateDownloaderFactory downloaderFactory;
 
+    @Inject
+    Event<TemplateRefreshedEvent> templateRefreshedEvent;
+
     private static final String TEMPLATES_CACHE_DIR = System.getProperty("java.io.tmpdir") + "/templates-cache";
     private static final Duration CACHE_TTL = Duration.ofHours(2); // 2 hours TTL
+    private static final Duration CACHE_RETENTION = Duration.ofHours(24); // expired files kept for revalidation
+    private static final String VALIDATOR_SUFFIX = ".meta";
+    private static final String LOCK_SUFFIX = ".lock";
+    private static final String TEMP_SUFFIX = ".part";
+    private static final Duration LOCK_TIMEOUT = Duration.ofSeconds(60);
+    private static final long LOCK_POLL_INTERVAL_MS = 50;
+
+    @ConfigProperty(name = "app.templates.cache.memory.max-bytes", defaultValue = "67108864")
+    long memoryTierMaxBytes;
+
+    @ConfigProperty(name = "app.templates.cache.disk.max-bytes", defaultValue = "268435456")
+    long diskMaxBytes;
+
+    @ConfigProperty(name = "app.templates.cache.negative.not-found-ttl-ms", defaultValue = "60000")
+    long negativeNotFoundTtlMs;
+
+    @ConfigProperty(name = "app.templates.cache.negative.error-ttl-ms", defaultValue = "5000")
+    long negativeErrorTtlMs;
+
+    @ConfigProperty(name = "app.templates.cache.negative.max-entries", defaultValue = "1024")
+    int negativeMaxEntries;
+
+    private BoundedLruCache<String, MemoryEntry> memoryTier;
+
+    private DiskCacheIndex diskIndex;
+    private BoundedLruCache<String, NegativeEntry> negativeCache;
+    private final Set<String> filesInFlight = ConcurrentHashMap.newKeySet();
+    private final Set<String> refreshesRequested = ConcurrentHashMap.newKeySet();
+
+    private final SingleFlight<String, File> downloadFlights = new SingleFlight<>();
+    private final SingleFlight<String, TemplateContent> contentFlights = new SingleFlight<>();
+
+    private final ConcurrentMap<String, LongAdder> accessCounts = new ConcurrentHashMap<>();
+    private final LongAdder fetches = new LongAdder();
+
+    @PostConstruct
+    void initMemoryTier() {
+        this.memoryTier = new BoundedLruCache<>("template-memory-tier", memoryTierMaxBytes,
+                entry -> entry.content().size(), null);
+        log.infof("Template memory tier initialized (max: %s)", LogSanitizer.sanitizeByteCount(memoryTierMaxBytes));
+
+        this.diskIndex = new DiskCacheIndex(new File(TEMPLATES_CACHE_DIR), VALIDATOR_SUFFIX, LOCK_SUFFIX, TEMP_SUFFIX);
+        diskIndex.load();
+
+        this.negativeCache = BoundedLruCache.ofMaxEntries("template-negative-cache", negativeMaxEntries, null);
+    }
+
+    /**
+     * Gets the content of a template from the memory tier.
+     * Strategy:
+     * 1. If URI has no protocol, read it from the filesystem or classpath (not cached)
+     * 2. If the memory tier has a fresh entry, return it (no filesystem access at all)
+     * 3. Otherwise resolve the file through the disk tier (downloading if needed),
+     *    load its bytes once and keep them in the memory tier
+     *
+     * @param uriFile the template URI
+     * @return the template content
+     * @throws TemplateNotFoundException if the template cannot be found or downloaded
+     */
+    @Override
+    public TemplateContent getTemplateContent(String uriFile) {
+        if (uriFile == null || uriFile.trim().isEmpty()) {
+            throw new TemplateNotFoundException("URI is null or empty");
+        }
+
+        if (!hasProtocol(uriFile)) {
+            return readLocalContent(uriFile);
+        }
+        recordAccess(uriFile);
+
+        MemoryEntry entry = memoryTier.get(uriFile);
+        if (entry != null && isFresh(entry.cachedAt())) {
+            // Keep the backing file recent for the disk tier size cap
+            diskIndex.recordAccess(new File(entry.content().getLocalPath()).getName());
+            log.debugf("Using in-memory template: %s (%s)",
+                LogSanitizer.sanitizeTemplatePath(uriFile), LogSanitizer.sanitizeByteCount(entry.content().size()));
+            return entry.content();
+        }
+
+        return contentFlights.execute(uriFile, () -> loadIntoMemoryTier(uriFile));
+    }
+
+    /**
+     * Resolves a template through the disk tier and loads its bytes into the memory tier.
+     * Only one caller per URI runs this at a time (see getTemplateContent).
+     *
+     * @param uriFile the template URI
+     * @return the template content
+     */
+    private TemplateContent loadIntoMemoryTier(String uriFile) {
+        // Another caller may have loaded it while we were waiting to become the leader
+        MemoryEntry entry = memoryTier.get(uriFile);
+        if (entry != null && isFresh(entry.cachedAt())) {
+            return entry.content();
+        }
+
+        // The access was already recorded by getTemplateContent (or is a background refresh)
+        File cachedFile = resolveTemplateFile(uriFile);
+        try {
+            Instant cachedAt = getCacheTimestamp(cachedFile);
+            TemplateContent content = toContent(uriFile, cachedFile, Files.readAllBytes(cachedFile.toPath()));
+            memoryTier.put(uriFile, new MemoryEntry(content, cachedAt != null ? cachedAt : Instant.now()));
+            return content;
+        } catch (IOException e) {
+            log.errorf(e, "Failed to read cached template: %s", LogSanitizer.sanitizeTemplatePath(uriFile));
+            throw new TemplateNotFoundException("Failed to read cached template: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the hit/miss counters of the memory tier.
+     *
+     * @return cache statistics snapshot
+     */
+    public BoundedLruCache.Stats getMemoryTierStats() {
+        return memoryTier.stats();
+    }
+
+    /**
+     * Returns the hit/miss counters of the negative cache (hits are requests that failed fast).
+     *
+     * @return cache statistics snapshot
+     */
+    public BoundedLruCache.Stats getNegativeCacheStats() {
+        return negativeCache.stats();
+    }
+
+    /**
+     * @return number of templates actually fetched from their source (revalidations that found
+     *         the cached copy unchanged are not counted)
+     */
+    public long getDownloadCount() {
+        return fetches.sum();
+    }
+
+    /**
+     * @return number of callers that waited on a download already in flight instead of downloading
+     */
+    public long getCoalescedDownloadWaits() {
+        return downloadFlights.getCoalescedWaits() + contentFlights.getCoalescedWaits();
+    }
+
+    /**
+     * Returns the accesses per URI since the previous call and resets the counters.
+     *
+     * @return access count per template URI (only URIs accessed in the period)
+     */
+    public Map<String, Long> drainAccessCounts() {
+        Map<String, Long> snapshot = new HashMap<>();
+        accessCounts.forEach((uri, counter) -> {
+            long count = counter.sumThenReset();
+            if (count > 0) {
+                snapshot.put(uri, count);
+            }
+        });
+        // Drop counters of templates no longer accessed so the map does not grow forever
+        accessCounts.entrySet().removeIf(e -> !snapshot.containsKey(e.getKey()) && e.getValue().sum() == 0);
+        return snapshot;
+    }
+
+    /**
+     * Gets the time left before the cached copy of a template expires.
+     *
+     * @param uriFile the template URI
+     * @return remaining TTL (negative if already expired), or null if the template is not cached on disk
+     */
+    public Duration getRemainingTtl(String uriFile) {
+        if (!hasProtocol(uriFile)) {
+            return null;
+        }
+        Duration age = getCacheAge(getCachedFile(uriFile));
+        return age != null ? CACHE_TTL.minus(age) : null;
+    }
+
+    /**
+     * Revalidates (or downloads) a template regardless of its remaining TTL and reloads
+     * the memory tier. Used by the background refresher: request threads arriving while
+     * the refresh is in flight still see a valid cached copy and never wait for it.
+     *
+     * @param uriFile the template URI
+     * @throws TemplateNotFoundException if the template cannot be revalidated or downloaded
+     */
+    public void refresh(String uriFile) {
+        if (!hasProtocol(uriFile)) {
+            return;
+        }
+
+        File cachedFile = getCachedFile(uriFile);
+        downloadFlights.execute(uriFile, () -> {
+            refreshesRequested.add(uriFile);
+            try {
+                return downloadAndCache(uriFile, cachedFile);
+            } finally {
+                refreshesRequested.remove(uriFile);
+            }
+        });
+        contentFlights.execute(uriFile, () -> loadIntoMemoryTier(uriFile));
+    }
+
+    private void recordAccess(String uriFile) {
+        accessCounts.computeIfAbsent(uriFile, k -> new LongAdder()).increment();
+    }
 
     /**
      * Gets a template file.
@@ -55,7 +304,7 @@ public class InfraTemplateRepository implements TemplateRepository {
      * 1. If URI has no protocol (no @), treat as classpath/relative path
      * 2. Check cache - if exists and not expired, return cached file
      * 3. If not in cache or expired, download using appropriate downloader
-     * 4. Clean up expired cache files
+     * (expired files are evicted in background, see evictDiskCache)
      *
      * @param uriFile the template URI
      * @return the template File
@@ -79,18 +328,50 @@ public class InfraTemplateRepository implements TemplateRepository {
             return localFile;
         }
 
-        // Check if template is in cache and still valid
+        recordAccess(uriFile);
+        return resolveTemplateFile(uriFile);
+    }
+
+    /**
+     * Returns the cached file of a remote template, downloading or revalidating it if needed.
+     * Does not record an access: callers record it once per request.
+     *
+     * @param uriFile the template URI (with protocol)
+     * @return the cached template file
+     * @throws TemplateNotFoundException if the template cannot be downloaded
+     */
+    private File resolveTemplateFile(String uriFile) {
+        // Check if template is in cache and still valid (single stat call)
         File cachedFile = getCachedFile(uriFile);
-        if (isValidCache(cachedFile)) {
+        Duration age = getCacheAge(cachedFile);
+        if (age != null && age.compareTo(CACHE_TTL) < 0) {
             log.infof("Using cached template: %s (age: %s)",
-                    cachedFile.getName(), getCacheAge(cachedFile));
+                    cachedFile.getName(), formatAge(age));
+            diskIndex.recordAccess(cachedFile);
             return cachedFile;
         }
+        if (age != null) {
+            log.infof("Cache expired for file: %s (age: %s, TTL: %s)",
+                    cachedFile.getName(), age, CACHE_TTL);
+        }
 
-        // Not in cache or expired, download it
-        log.infof("Template not in cache or expired, downloading: %s",
-            LogSanitizer.sanitizeTemplatePath(uriFile));
-        return downloadAndCache(uriFile, cachedFile);
+        // Recently failed: fail fast instead of hitting the source again
+        checkNegativeCache(uriFile);
+
+        // Not in cache or expired, download it (one download per URI, concurrent callers wait for it)
+        if (downloadFlights.isInFlight(uriFile)) {
+            log.debugf("Download already in flight, waiting for it: %s",
+                LogSanitizer.sanitizeTemplatePath(uriFile));
+        }
+        return downloadFlights.execute(uriFile, () -> {
+            // The previous leader may have refreshed the file while we were checking the cache
+            if (isValidCache(cachedFile)) {
+                return cachedFile;
+            }
+            log.infof("Template not in cache or expired, downloading: %s",
+                LogSanitizer.sanitizeTemplatePath(uriFile));
+            return downloadAndCache(uriFile, cachedFile);
+        });
     }
 
     /**
@@ -140,6 +421,14 @@ public class InfraTemplateRepository implements TemplateRepository {
 
     /**
      * Downloads a template using the appropriate downloader and caches it.
+     * If an expired copy with a persisted validator exists, it is revalidated with a
+     * conditional request first; when the source is unchanged only the TTL is renewed.
+     *
+     * Cross-process protocol (several JVMs sharing the cache directory, e.g. on EFS):
+     * the refresh runs under an exclusive file lock ({file}.lock) and the cache is checked
+     * again once the lock is acquired, so only one process downloads a template; the new
+     * version is written to a temporary file and published with an atomic rename, so readers
+     * see either the previous complete file or the new one.
      *
      * @param uri the template URI
      * @param targetFile the target cache file
@@ -147,32 +436,278 @@ public class InfraTemplateRepository implements TemplateRepository {
      * @throws TemplateNotFoundException if download fails
      */
     private File downloadAndCache(String uri, File targetFile) {
+        filesInFlight.add(targetFile.getName());
         try {
-            // Get the appropriate downloader
-            TemplateDownloader downloader = downloaderFactory.getDownloader(uri);
-
             // Create cache directory if needed
             File cacheDir = targetFile.getParentFile();
             if (!cacheDir.exists()) {
                 cacheDir.mkdirs();
             }
 
-            // Clean up expired cache files before downloading
-            cleanExpiredCache();
+            try (CacheEntryLock lock = lockCacheEntry(targetFile)) {
+                // Another process may have refreshed the template while we waited for the lock
+                if (isValidCache(targetFile) && !refreshRequested(uri)) {
+                    diskIndex.recordAccess(targetFile);
+                    log.infof("Template refreshed by another process: %s",
+                        LogSanitizer.sanitizePath(targetFile.getName()));
+                    return targetFile;
+                }
+                return fetchAndPublish(uri, targetFile);
+            }
+
+        } catch (Exception e) {
+            log.errorf(e, "Failed to download template: %s",
+                LogSanitizer.sanitizeTemplatePath(uri));
+            String message = "Failed to download template: " + e.getMessage();
+            recordFailure(uri, message, isNotFound(e));
+            throw new TemplateNotFoundException(message);
+        } finally {
+            filesInFlight.remove(targetFile.getName());
+        }
+    }
+
+    /**
+     * Throws immediately if the template failed recently (negative cache).
+     *
+     * @param uri the template URI
+     * @throws TemplateNotFoundException with the original failure message
+     */
+    private void checkNegativeCache(String uri) {
+        NegativeEntry failure = negativeCache.get(uri);
+        if (failure == null) {
+            return;
+        }
+        if (System.currentTimeMillis() < failure.expiresAt()) {
+            log.debugf("Template failed recently (%s), failing fast: %s",
+                failure.notFound() ? "not found" : "error", LogSanitizer.sanitizeTemplatePath(uri));
+            throw new TemplateNotFoundException(failure.message());
+        }
+        negativeCache.invalidate(uri);
+    }
+
+    /**
+     * Remembers a failed download: missing templates for the not-found TTL,
+     * transient errors (timeouts, 5xx, throttling) for the shorter error TTL.
+     */
+    private void recordFailure(String uri, String message, boolean notFound) {
+        long ttlMs = notFound ? negativeNotFoundTtlMs : negativeErrorTtlMs;
+        if (ttlMs > 0) {
+            negativeCache.put(uri, new NegativeEntry(message, notFound, System.currentTimeMillis() + ttlMs));
+        }
+    }
+
+    /**
+     * Tells whether a download failure means the template does not exist
+     * (rather than a transient error): missing source or unsupported/invalid URI.
+     */
+    private boolean isNotFound(Exception e) {
+        return e instanceof TemplateSourceNotFoundException || e instanceof IllegalArgumentException;
+    }
+
+    /**
+     * Revalidates or downloads a template into a temporary file and publishes it atomically.
+     * Must be called with the cache entry lock held.
+     *
+     * @param uri the template URI
+     * @param targetFile the target cache file
+     * @return the cached File
+     * @throws Exception if download fails
+     */
+    private File fetchAndPublish(String uri, File targetFile) throws Exception {
+        // Get the appropriate downloader
+        TemplateDownloader downloader = downloaderFactory.getDownloader(uri);
+        File tempFile = getTempFile(targetFile);
+        try {
+            TemplateValidator validator = readValidator(targetFile);
+            TemplateValidator newValidator;
+            if (targetFile.exists() && !validator.isEmpty()) {
+                RevalidationResult result = downloader.revalidate(uri, tempFile, validator);
+                if (!result.modified()) {
+                    writeValidator(targetFile, result.validator());
+                    renewCacheEntry(uri, targetFile);
+                    diskIndex.recordValidated(targetFile);
+                    log.infof("Template not modified, cache renewed: %s",
+                        LogSanitizer.sanitizePath(targetFile.getName()));
+                    return targetFile;
+                }
+                newValidator = result.validator();
+            } else {
+                newValidator = downloader.download(uri, tempFile);
+            }
 
-            // Download
-            downloader.download(uri, targetFile);
+            fetches.increment();
 
+            // Publish: the memory tier must not serve the previous version afterwards
+            publish(tempFile, targetFile);
+            negativeCache.invalidate(uri);
+            writeValidator(targetFile, newValidator);
+            memoryTier.invalidate(uri);
+            diskIndex.recordValidated(targetFile);
             log.infof("Template downloaded and cached: %s (%s)",
                 LogSanitizer.sanitizePath(targetFile.getName()),
                 LogSanitizer.sanitizeByteCount(targetFile.length()));
 
+            // Let in-memory compiled template caches drop the previous version
+            templateRefreshedEvent.fire(new TemplateRefreshedEvent(uri, targetFile.getAbsolutePath()));
+
             return targetFile;
+        } finally {
+            Files.deleteIfExists(tempFile.toPath());
+        }
+    }
 
-        } catch (Exception e) {
-            log.errorf(e, "Failed to download template: %s",
-                LogSanitizer.sanitizeTemplatePath(uri));
-            throw new TemplateNotFoundException("Failed to download template: " + e.getMessage());
+    /**
+     * Tells whether a refresh of a still-valid template was explicitly requested
+     * (refresh-ahead), in which case the validity re-check under the lock is skipped.
+     */
+    private boolean refreshRequested(String uri) {
+        return refreshesRequested.contains(uri);
+    }
+
+    /**
+     * Acquires the exclusive cross-process lock of a cache entry, waiting at most LOCK_TIMEOUT.
+     * On timeout (or if locking is not supported by the filesystem) the refresh proceeds
+     * unlocked: atomic publishing still prevents corrupted reads, at worst the template is
+     * downloaded twice.
+     *
+     * @param cachedFile the cached template file
+     * @return the lock to release when done (not held if it could not be acquired)
+     */
+    private CacheEntryLock lockCacheEntry(File cachedFile) {
+        File lockFile = new File(cachedFile.getParentFile(), cachedFile.getName() + LOCK_SUFFIX);
+        long deadline = System.currentTimeMillis() + LOCK_TIMEOUT.toMillis();
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            while (true) {
+                FileLock lock = channel.tryLock();
+                if (lock != null) {
+                    return new CacheEntryLock(channel, lock);
+                }
+                if (System.currentTimeMillis() >= deadline) {
+                    break;
+                }
+                Thread.sleep(LOCK_POLL_INTERVAL_MS);
+            }
+            log.warnf("Timed out waiting for cache lock, downloading unlocked: %s", cachedFile.getName());
+        } catch (IOException | OverlappingFileLockException e) {
+            log.warnf("Could not lock cache entry, downloading unlocked: %s (%s)", cachedFile.getName(), e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeQuietly(channel);
+        return new CacheEntryLock(null, null);
+    }
+
+    /**
+     * Gets a unique temporary file next to a cache entry (same directory, so the final
+     * rename is atomic). It is not created: downloaders create it when writing.
+     *
+     * @param cachedFile the cached template file
+     * @return the temporary file ({cachedFile}.{random}.part)
+     */
+    private File getTempFile(File cachedFile) {
+        return new File(cachedFile.getParentFile(),
+            cachedFile.getName() + "." + UUID.randomUUID() + TEMP_SUFFIX);
+    }
+
+    /**
+     * Atomically replaces the cached file with a completely written temporary file.
+     *
+     * @param tempFile the temporary file
+     * @param cachedFile the cache entry
+     * @throws IOException if the file cannot be moved
+     */
+    private void publish(File tempFile, File cachedFile) throws IOException {
+        try {
+            Files.move(tempFile.toPath(), cachedFile.toPath(),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            log.warnf("Atomic move not supported for cache directory, using plain replace: %s", cachedFile.getName());
+            Files.move(tempFile.toPath(), cachedFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel != null) {
+            try {
+                // Closing the channel also releases its lock
+                channel.close();
+            } catch (IOException e) {
+                log.debugf("Could not close lock channel: %s", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Renews the TTL of a cached template that was revalidated as not modified.
+     * The cached file's last-modified time is the start of its TTL; the memory tier
+     * entry (same bytes) is kept and its timestamp renewed.
+     *
+     * @param uri the template URI
+     * @param targetFile the cached file
+     */
+    private void renewCacheEntry(String uri, File targetFile) {
+        long now = System.currentTimeMillis();
+        if (!targetFile.setLastModified(now)) {
+            log.warnf("Could not renew timestamp of cached template: %s", targetFile.getName());
+        }
+        memoryTier.computeIfPresent(uri, entry -> new MemoryEntry(entry.content(), Instant.ofEpochMilli(now)));
+    }
+
+    /**
+     * Gets the sidecar file holding the validator of a cached template.
+     *
+     * @param cachedFile the cached template file
+     * @return the validator file ({cachedFile}.meta)
+     */
+    private File getValidatorFile(File cachedFile) {
+        return new File(cachedFile.getParentFile(), cachedFile.getName() + VALIDATOR_SUFFIX);
+    }
+
+    /**
+     * Reads the validator persisted next to a cached template.
+     *
+     * @param cachedFile the cached template file
+     * @return the validator, or {@link TemplateValidator#NONE} if absent or unreadable
+     */
+    private TemplateValidator readValidator(File cachedFile) {
+        File validatorFile = getValidatorFile(cachedFile);
+        if (!validatorFile.exists()) {
+            return TemplateValidator.NONE;
+        }
+
+        try (InputStream in = Files.newInputStream(validatorFile.toPath())) {
+            Properties properties = new Properties();
+            properties.load(in);
+            return TemplateValidator.fromProperties(properties);
+        } catch (IOException e) {
+            log.warnf("Could not read validator for: %s", cachedFile.getName());
+            return TemplateValidator.NONE;
+        }
+    }
+
+    /**
+     * Persists the validator of a cached template (removes it if the source exposes none).
+     *
+     * @param cachedFile the cached template file
+     * @param validator the validator to persist
+     */
+    private void writeValidator(File cachedFile, TemplateValidator validator) {
+        File validatorFile = getValidatorFile(cachedFile);
+        try {
+            if (validator == null || validator.isEmpty()) {
+                Files.deleteIfExists(validatorFile.toPath());
+                return;
+            }
+            File tempFile = getTempFile(validatorFile);
+            try (OutputStream out = Files.newOutputStream(tempFile.toPath())) {
+                validator.toProperties().store(out, null);
+            }
+            publish(tempFile, validatorFile);
+        } catch (IOException e) {
+            // Not fatal: the next expiry falls back to a full download
+            log.warnf("Could not persist validator for: %s", cachedFile.getName());
         }
     }
 
@@ -183,51 +718,101 @@ public class InfraTemplateRepository implements TemplateRepository {
      * @return true if file exists and is less than 2 hours old
      */
     private boolean isValidCache(File cachedFile) {
+        Duration age = getCacheAge(cachedFile);
+        return age != null && age.compareTo(CACHE_TTL) < 0;
+    }
+
+    /**
+     * Checks if a cache timestamp is still within the TTL.
+     *
+     * @param cachedAt when the template was cached
+     * @return true if less than 2 hours old
+     */
+    private boolean isFresh(Instant cachedAt) {
+        return Duration.between(cachedAt, Instant.now()).compareTo(CACHE_TTL) < 0;
+    }
+
+    /**
+     * Gets the instant a cached file was written.
+     * Uses the last-modified time: the creation time is kept when a download overwrites an expired file.
+     *
+     * @param cachedFile the cached file
+     * @return the last write time, or null if the file does not exist or cannot be read
+     */
+    private Instant getCacheTimestamp(File cachedFile) {
         if (cachedFile == null || !cachedFile.exists()) {
-            return false;
+            return null;
         }
 
         try {
             BasicFileAttributes attrs = Files.readAttributes(cachedFile.toPath(), BasicFileAttributes.class);
-            Instant creationTime = attrs.creationTime().toInstant();
-            Instant now = Instant.now();
-            Duration age = Duration.between(creationTime, now);
-
-            boolean isValid = age.compareTo(CACHE_TTL) < 0;
-
-            if (!isValid) {
-                log.infof("Cache expired for file: %s (age: %s, TTL: %s)",
-                        cachedFile.getName(), age, CACHE_TTL);
-            }
-
-            return isValid;
-
+            return attrs.lastModifiedTime().toInstant();
         } catch (IOException e) {
             log.warnf("Could not read file attributes for: %s", cachedFile.getName());
-            return false;
+            return null;
         }
     }
 
     /**
-     * Gets the age of a cached file as a human-readable string.
+     * Gets the age of a cached file.
      *
      * @param cachedFile the cached file
+     * @return the age, or null if the file does not exist or cannot be read
+     */
+    private Duration getCacheAge(File cachedFile) {
+        Instant cachedAt = getCacheTimestamp(cachedFile);
+        return cachedAt != null ? Duration.between(cachedAt, Instant.now()) : null;
+    }
+
+    /**
+     * Formats a cache age as a human-readable string.
+     *
+     * @param age the age
      * @return formatted age string
      */
-    private String getCacheAge(File cachedFile) {
-        try {
-            BasicFileAttributes attrs = Files.readAttributes(cachedFile.toPath(), BasicFileAttributes.class);
-            Instant creationTime = attrs.creationTime().toInstant();
-            Instant now = Instant.now();
-            Duration age = Duration.between(creationTime, now);
+    private String formatAge(Duration age) {
+        long hours = age.toHours();
+        long minutes = age.toMinutes() % 60;
+        return String.format("%dh %dm", hours, minutes);
+    }
 
-            long hours = age.toHours();
-            long minutes = age.toMinutes() % 60;
-            return String.format("%dh %dm", hours, minutes);
+    /**
+     * Builds the in-memory content of a template.
+     *
+     * @param uri the template URI
+     * @param file the file backing the content (may be null for classpath templates)
+     * @param bytes the template bytes
+     * @return the template content with its SHA-256 fingerprint
+     */
+    private TemplateContent toContent(String uri, File file, byte[] bytes) {
+        String localPath = file != null ? file.getAbsolutePath() : null;
+        return new TemplateContent(uri, localPath, bytes, Util.sha256Hex(bytes));
+    }
 
+    /**
+     * Reads a template without protocol from the filesystem or the classpath (templates/ folder).
+     * These templates are not cached in the memory tier.
+     *
+     * @param uriFile relative/classpath template path
+     * @return the template content
+     * @throws TemplateNotFoundException if the template cannot be found
+     */
+    private TemplateContent readLocalContent(String uriFile) {
+        try {
+            File localFile = new File(uriFile);
+            if (localFile.exists() && localFile.canRead()) {
+                return toContent(uriFile, localFile, Files.readAllBytes(localFile.toPath()));
+            }
+
+            try (InputStream classPathStream = getClass().getClassLoader().getResourceAsStream("templates/" + uriFile)) {
+                if (classPathStream != null) {
+                    return toContent(uriFile, null, classPathStream.readAllBytes());
+                }
+            }
         } catch (IOException e) {
-            return "unknown";
+            log.errorf(e, "Failed to read local template: %s", LogSanitizer.sanitizeTemplatePath(uriFile));
         }
+        throw new TemplateNotFoundException(uriFile);
     }
 
     /**
@@ -276,36 +861,61 @@ public class InfraTemplateRepository implements TemplateRepository {
     }
 
     /**
-     * Cleans up expired cache files (older than 2 hours).
-     * This is called before each download to keep the cache clean.
+     * Evicts cache files (and their validators) not validated for 24 hours, then the least
+     * recently used ones while the disk tier is over app.templates.cache.disk.max-bytes.
+     * Files past the 2 hours TTL are kept so they can be revalidated cheaply.
+     * Runs in background (see {@link TemplateCacheJanitor}) on the in-memory index, so
+     * downloads never list or stat the cache directory.
+     *
+     * @return number of evicted templates
      */
-    private void cleanExpiredCache() {
-        File cacheDir = new File(TEMPLATES_CACHE_DIR);
-        if (!cacheDir.exists() || !cacheDir.isDirectory()) {
-            return;
+    public int evictDiskCache() {
+        int deletedCount = diskIndex.evict(CACHE_RETENTION, diskMaxBytes, filesInFlight::contains);
+        if (deletedCount > 0) {
+            log.infof("Evicted %d cached template file(s), disk tier now %s in %d file(s)", deletedCount,
+                LogSanitizer.sanitizeByteCount(diskIndex.totalBytes()), diskIndex.size());
         }
+        return deletedCount;
+    }
 
-        File[] files = cacheDir.listFiles();
-        if (files == null || files.length == 0) {
-            return;
-        }
+    /**
+     * @return total bytes of the templates in the disk tier
+     */
+    public long getDiskCacheBytes() {
+        return diskIndex.totalBytes();
+    }
 
-        int deletedCount = 0;
-        for (File file : files) {
-            if (!isValidCache(file)) {
-                try {
-                    if (file.delete()) {
-                        deletedCount++;
-                        log.debugf("Deleted expired cache file: %s", file.getName());
-                    }
-                } catch (Exception e) {
-                    log.warnf("Failed to delete expired cache file: %s", file.getName());
-                }
-            }
-        }
+    /**
+     * Memory tier entry.
+     *
+     * @param content the template content
+     * @param cachedAt when the backing file was cached (drives the TTL)
+     */
+    private record MemoryEntry(TemplateContent content, Instant cachedAt) {
+    }
 
-        if (deletedCount > 0) {
-            log.infof("Cleaned up %d expired cache files", deletedCount);
+    /**
+     * Negative cache entry: a recent download failure.
+     *
+     * @param message the failure message returned to callers
+     * @param notFound true if the template does not exist at its source
+     * @param expiresAt epoch millis until which the failure is served from cache
+     */
+    private record NegativeEntry(String message, boolean notFound, long expiresAt) {
+    }
+
+    /**
+     * Cross-process lock of a cache entry. The lock file is kept: deleting it would let
+     * two processes lock different inodes for the same entry.
+     *
+     * @param channel the lock file channel (null if the lock could not be acquired)
+     * @param lock the exclusive lock (null if not held)
+     */
+    private record CacheEntryLock(FileChannel channel, FileLock lock) implements AutoCloseable {
+
+        @Override
+        public void close() {
+            closeQuietly(channel);
         }
     }
 }
@@ -1,10 +1,12 @@
 package pe.soapros.document.infrastructure.repository;
 
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import lombok.extern.jbosslog.JBossLog;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import pe.soapros.document.domain.DocumentRepository;
+import pe.soapros.document.domain.DocumentUpload;
 import pe.soapros.document.domain.exception.DocumentGenerationException;
 import pe.soapros.document.infrastructure.util.LogSanitizer;
 import software.amazon.awssdk.core.sync.RequestBody;
@@ -17,11 +19,17 @@ import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * S3-based implementation of DocumentRepository.
  * Uploads generated documents to AWS S3 with metadata for searchability.
  *
+ * Documents can also be streamed while they are generated (openUpload): parts are
+ * uploaded with S3 multipart as they fill (see {@link S3MultipartUpload}), so no local
+ * file is written and generation overlaps with the upload.
+ *
  * Format returned: s3@:bucket/prefix/yyyy/MM/dd/filename-uuid.ext
  * The ':' prefix indicates using the configured bucket.
  */
@@ -29,6 +37,8 @@ import java.util.UUID;
 @JBossLog
 public class S3DocumentRepository implements DocumentRepository {
 
+    private static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
     @Inject
     S3Client s3Client;
 
@@ -38,6 +48,20 @@ public class S3DocumentRepository implements DocumentRepository {
     @ConfigProperty(name = "aws.s3.prefix.documents", defaultValue = "generated-documents")
     String documentsPrefix;
 
+    @ConfigProperty(name = "app.documents.upload.part-size-bytes", defaultValue = "8388608")
+    int uploadPartSize;
+
+    @ConfigProperty(name = "app.documents.upload.max-in-flight-parts", defaultValue = "2")
+    int uploadMaxInFlightParts;
+
+    // Part uploads are I/O bound: one virtual thread per part, bounded per upload by max-in-flight-parts
+    private final ExecutorService uploadExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @PreDestroy
+    void shutdownUploadExecutor() {
+        uploadExecutor.shutdown();
+    }
+
     /**
      * Saves a generated document to S3 with metadata.
      *
@@ -55,13 +79,13 @@ public class S3DocumentRepository implements DocumentRepository {
 
         try {
             // Generate S3 key with date-based organization
-            String s3Key = generateS3Key(file);
+            String s3Key = generateS3Key(file.getName());
 
             // Determine content type based on file extension
             String contentType = determineContentType(file.getName());
 
             // Prepare metadata for future searches
-            Map<String, String> metadata = buildMetadata(file);
+            Map<String, String> metadata = buildMetadata(file.getName(), file.length());
 
             log.infof("Uploading document to S3: %s (%s)",
                      LogSanitizer.sanitizePath(s3Key),
@@ -92,23 +116,40 @@ public class S3DocumentRepository implements DocumentRepository {
         }
     }
 
+    /**
+     * Opens a streaming upload to S3 for a document being generated.
+     *
+     * @param fileName the document file name
+     * @return the upload; its complete() returns the S3 path in format "s3@:bucket/key"
+     */
+    @Override
+    public DocumentUpload openUpload(String fileName) {
+        String s3Key = generateS3Key(fileName);
+        log.debugf("Opening streaming upload to S3: %s", LogSanitizer.sanitizePath(s3Key));
+
+        // S3 requires parts of at least 5 MB (except the last one)
+        int partSize = Math.max(MIN_PART_SIZE, uploadPartSize);
+        return new S3MultipartUpload(s3Client, uploadExecutor, documentsBucket, s3Key,
+                determineContentType(fileName), size -> buildMetadata(fileName, size),
+                partSize, Math.max(1, uploadMaxInFlightParts));
+    }
+
     /**
      * Generates a unique S3 key for the document.
      * Format: {prefix}/{year}/{month}/{day}/{filename}-{uuid}.{ext}
      *
      * Example: generated-documents/2025/11/04/report-550e8400-e29b-41d4-a716-446655440000.pdf
      *
-     * @param file the file to upload
+     * @param fileName the name of the file to upload
      * @return the generated S3 key
      */
-    private String generateS3Key(File file) {
+    private String generateS3Key(String fileName) {
         LocalDateTime now = LocalDateTime.now();
         String year = String.valueOf(now.getYear());
         String month = String.format("%02d", now.getMonthValue());
         String day = String.format("%02d", now.getDayOfMonth());
 
         // Extract filename without extension
-        String fileName = file.getName();
         String baseName = fileName;
         String extension = "";
 
@@ -129,10 +170,11 @@ public class S3DocumentRepository implements DocumentRepository {
     /**
      * Builds metadata map for S3 object to enable future searches.
      *
-     * @param file the file being uploaded
+     * @param fileName the name of the file being uploaded
+     * @param fileSize the file size, or null if unknown when the upload starts (multipart)
      * @return map of metadata key-value pairs
      */
-    private Map<String, String> buildMetadata(File file) {
+    private Map<String, String> buildMetadata(String fileName, Long fileSize) {
         Map<String, String> metadata = new HashMap<>();
 
         // Add upload timestamp
@@ -140,17 +182,19 @@ public class S3DocumentRepository implements DocumentRepository {
                     LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
 
         // Add original filename
-        metadata.put("original-filename", file.getName());
+        metadata.put("original-filename", fileName);
 
         // Add file size
-        metadata.put("file-size", String.valueOf(file.length()));
+        if (fileSize != null) {
+            metadata.put("file-size", String.valueOf(fileSize));
+        }
 
         // Add generation date
         metadata.put("generated-date",
                     LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE));
 
         // Add file type/extension
-        String extension = getFileExtension(file.getName());
+        String extension = getFileExtension(fileName);
         if (!extension.isEmpty()) {
             metadata.put("file-type", extension);
         }
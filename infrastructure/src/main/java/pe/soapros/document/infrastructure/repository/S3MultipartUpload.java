@@ -0,0 +1,280 @@
+package pe.soapros.document.infrastructure.repository;
+
+import lombok.extern.jbosslog.JBossLog;
+import pe.soapros.document.domain.DocumentUpload;
+import pe.soapros.document.domain.exception.DocumentGenerationException;
+import pe.soapros.document.infrastructure.util.LogSanitizer;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+/**
+ * Streaming upload of a document to S3.
+ *
+ * Bytes are buffered into parts of a fixed size; each full part is uploaded with
+ * UploadPart in background while generation keeps writing the next one. At most
+ * maxInFlightParts parts are uploading at a time (the writer blocks beyond that), so
+ * memory per document is bounded by partSize * (maxInFlightParts + 1).
+ *
+ * Documents smaller than one part never start a multipart upload: they are sent with
+ * a single PutObject on completion.
+ */
+@JBossLog
+class S3MultipartUpload extends OutputStream implements DocumentUpload {
+
+    private static final int INITIAL_BUFFER_SIZE = 256 * 1024;
+
+    private final S3Client s3Client;
+    private final Executor executor;
+    private final String bucket;
+    private final String key;
+    private final String contentType;
+    private final Function<Long, Map<String, String>> metadata;
+    private final int partSize;
+    private final Semaphore inFlight;
+
+    private byte[] buffer;
+    private int position;
+    private long size;
+
+    private String uploadId;
+    private int nextPartNumber = 1;
+    private final List<CompletableFuture<CompletedPart>> parts = new ArrayList<>();
+    private boolean finished;
+
+    /**
+     * @param metadata builds the object metadata from the document size (null when unknown: multipart)
+     */
+    S3MultipartUpload(S3Client s3Client, Executor executor, String bucket, String key, String contentType,
+                      Function<Long, Map<String, String>> metadata, int partSize, int maxInFlightParts) {
+        this.s3Client = s3Client;
+        this.executor = executor;
+        this.bucket = bucket;
+        this.key = key;
+        this.contentType = contentType;
+        this.metadata = metadata;
+        this.partSize = partSize;
+        this.inFlight = new Semaphore(maxInFlightParts);
+        // Grown on demand: most documents are much smaller than a part
+        this.buffer = new byte[Math.min(partSize, INITIAL_BUFFER_SIZE)];
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return this;
+    }
+
+    @Override
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (position == partSize) {
+            flushPart();
+        }
+        ensureCapacity(position + 1);
+        buffer[position++] = (byte) b;
+        size++;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        ensureOpen();
+        while (length > 0) {
+            if (position == partSize) {
+                flushPart();
+            }
+            int chunk = Math.min(length, partSize - position);
+            ensureCapacity(position + chunk);
+            System.arraycopy(bytes, offset, buffer, position, chunk);
+            position += chunk;
+            offset += chunk;
+            length -= chunk;
+            size += chunk;
+        }
+    }
+
+    /**
+     * Closing the stream does nothing: the owner calls complete() or abort().
+     */
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public String complete() {
+        if (finished) {
+            throw new IllegalStateException("Upload already finished: " + key);
+        }
+        finished = true;
+
+        try {
+            if (uploadId == null) {
+                // Small document: a single request
+                PutObjectRequest putRequest = PutObjectRequest.builder()
+                        .bucket(bucket)
+                        .key(key)
+                        .contentType(contentType)
+                        .contentLength((long) position)
+                        .metadata(metadata.apply(size))
+                        .build();
+                s3Client.putObject(putRequest, bodyOf(buffer, position));
+            } else {
+                // Last part may be smaller than the minimum part size
+                if (position > 0) {
+                    uploadPart();
+                }
+                List<CompletedPart> completedParts = new ArrayList<>();
+                for (CompletableFuture<CompletedPart> part : parts) {
+                    completedParts.add(part.join());
+                }
+                completedParts.sort(Comparator.comparingInt(CompletedPart::partNumber));
+
+                s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                        .bucket(bucket)
+                        .key(key)
+                        .uploadId(uploadId)
+                        .multipartUpload(CompletedMultipartUpload.builder().parts(completedParts).build())
+                        .build());
+            }
+            buffer = null;
+
+            log.infof("Document streamed to S3: %s (%s, %d part(s))", LogSanitizer.sanitizePath(key),
+                    LogSanitizer.sanitizeByteCount(size), Math.max(1, parts.size()));
+            return String.format("s3@:%s/%s", bucket, key);
+
+        } catch (Exception e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            log.errorf(cause, "Failed to upload document: %s",
+                    LogSanitizer.sanitizeErrorMessage(cause.getMessage()));
+            abortMultipart();
+            throw new DocumentGenerationException("Failed to save document to S3", cause);
+        }
+    }
+
+    @Override
+    public void abort() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        buffer = null;
+        abortMultipart();
+    }
+
+    private void flushPart() throws IOException {
+        try {
+            if (uploadId == null) {
+                uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                        .bucket(bucket)
+                        .key(key)
+                        .contentType(contentType)
+                        .metadata(metadata.apply(null))
+                        .build()).uploadId();
+                log.debugf("Multipart upload started: %s", LogSanitizer.sanitizePath(key));
+            }
+            uploadPart();
+            buffer = new byte[partSize];
+            position = 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for an upload slot", e);
+        } catch (RuntimeException e) {
+            throw new IOException("Failed to upload document part: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Uploads the current buffer as the next part in background, waiting for a free slot.
+     * Fails fast if a previous part already failed.
+     */
+    private void uploadPart() throws InterruptedException {
+        for (CompletableFuture<CompletedPart> part : parts) {
+            if (part.isCompletedExceptionally()) {
+                part.join();
+            }
+        }
+
+        inFlight.acquire();
+        int partNumber = nextPartNumber++;
+        // The buffer is handed over to the part: the writer allocates a new one
+        byte[] partBytes = buffer;
+        int partLength = position;
+        CompletableFuture<CompletedPart> part = CompletableFuture.supplyAsync(() -> {
+            try {
+                UploadPartResponse response = s3Client.uploadPart(UploadPartRequest.builder()
+                        .bucket(bucket)
+                        .key(key)
+                        .uploadId(uploadId)
+                        .partNumber(partNumber)
+                        .contentLength((long) partLength)
+                        .build(), bodyOf(partBytes, partLength));
+                return CompletedPart.builder().partNumber(partNumber).eTag(response.eTag()).build();
+            } finally {
+                inFlight.release();
+            }
+        }, executor);
+        parts.add(part);
+    }
+
+    private void abortMultipart() {
+        if (uploadId == null) {
+            return;
+        }
+        parts.forEach(part -> part.cancel(true));
+        try {
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucket)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .build());
+            log.debugf("Multipart upload aborted: %s", LogSanitizer.sanitizePath(key));
+        } catch (Exception e) {
+            // S3 lifecycle rules clean up incomplete uploads eventually
+            log.warnf("Failed to abort multipart upload %s: %s", LogSanitizer.sanitizePath(key), e.getMessage());
+        }
+    }
+
+    /**
+     * Wraps the written bytes of a buffer without copying them (the stream supports mark/reset for retries).
+     */
+    private static RequestBody bodyOf(byte[] bytes, int length) {
+        return RequestBody.fromInputStream(new ByteArrayInputStream(bytes, 0, length), length);
+    }
+
+    private void ensureCapacity(int required) {
+        if (required > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.min(partSize, Math.max(required, buffer.length * 2)));
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (finished) {
+            throw new IOException("Upload already finished: " + key);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package pe.soapros.document.infrastructure.repository;
+
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import lombok.extern.jbosslog.JBossLog;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background eviction of the template disk cache.
+ *
+ * Periodically asks {@link InfraTemplateRepository} to enforce the retention period and the
+ * total-bytes cap of the disk tier (Lambda /tmp is finite). Eviction works on an in-memory
+ * index, so neither this task nor the download path lists the cache directory.
+ *
+ * Configuration:
+ * - app.templates.cache.janitor.interval-seconds: eviction period
+ * - app.templates.cache.disk.max-bytes: disk tier cap (read by the repository)
+ */
+@ApplicationScoped
+@JBossLog
+public class TemplateCacheJanitor {
+
+    @Inject
+    InfraTemplateRepository templateRepository;
+
+    @ConfigProperty(name = "app.templates.cache.janitor.interval-seconds", defaultValue = "60")
+    long intervalSeconds;
+
+    private ScheduledExecutorService scheduler;
+
+    void onStart(@Observes StartupEvent event) {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "template-cache-janitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::evict, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        log.infof("Template cache janitor started (interval: %ds)", intervalSeconds);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void evict() {
+        try {
+            templateRepository.evictDiskCache();
+        } catch (Exception e) {
+            // Never let an exception cancel the periodic task
+            log.errorf(e, "Template cache eviction failed");
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package pe.soapros.document.infrastructure.repository;
+
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import lombok.extern.jbosslog.JBossLog;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import pe.soapros.document.infrastructure.util.LogSanitizer;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Refresh-ahead for the template cache.
+ *
+ * Every tick the refresher collects the accesses recorded by {@link InfraTemplateRepository},
+ * keeps a decaying hotness score per template (score = score / 2 + accesses in the period)
+ * and revalidates the hot templates whose cached copy expires within the refresh-ahead window.
+ * Refreshes run on a small bounded pool; when the queue is full the refresh is skipped and
+ * retried on the next tick (or done inline by the first request after expiry, as before).
+ *
+ * This way request threads hitting popular templates practically never pay the download
+ * (or revalidation) latency inline.
+ *
+ * Configuration:
+ * - app.templates.cache.refresh.enabled: turns the refresher on/off
+ * - app.templates.cache.refresh.interval-seconds: tick period
+ * - app.templates.cache.refresh.ahead-seconds: how long before expiry a template is refreshed
+ * - app.templates.cache.refresh.min-accesses: hotness score needed to be refreshed
+ * - app.templates.cache.refresh.threads: refresh pool size
+ */
+@ApplicationScoped
+@JBossLog
+public class TemplateCacheRefresher {
+
+    private static final int QUEUE_CAPACITY = 64;
+
+    @Inject
+    InfraTemplateRepository templateRepository;
+
+    @ConfigProperty(name = "app.templates.cache.refresh.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "app.templates.cache.refresh.interval-seconds", defaultValue = "60")
+    long intervalSeconds;
+
+    @ConfigProperty(name = "app.templates.cache.refresh.ahead-seconds", defaultValue = "600")
+    long aheadSeconds;
+
+    @ConfigProperty(name = "app.templates.cache.refresh.min-accesses", defaultValue = "2")
+    long minAccesses;
+
+    @ConfigProperty(name = "app.templates.cache.refresh.threads", defaultValue = "2")
+    int threads;
+
+    private final Map<String, Long> hotness = new HashMap<>();
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+
+    private ScheduledExecutorService scheduler;
+    private ThreadPoolExecutor refreshPool;
+
+    void onStart(@Observes StartupEvent event) {
+        if (!enabled) {
+            log.info("Template cache refresher disabled");
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("template-refresh-tick"));
+        refreshPool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), daemonThreads("template-refresh"),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        scheduler.scheduleWithFixedDelay(this::tick, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        log.infof("Template cache refresher started (interval: %ds, ahead: %ds, min accesses: %d, threads: %d)",
+                intervalSeconds, aheadSeconds, minAccesses, threads);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (refreshPool != null) {
+            refreshPool.shutdownNow();
+        }
+    }
+
+    /**
+     * One refresher cycle: update hotness scores and schedule refreshes of hot templates close to expiry.
+     * Only called from the single scheduler thread.
+     */
+    void tick() {
+        try {
+            Map<String, Long> accesses = templateRepository.drainAccessCounts();
+
+            hotness.replaceAll((uri, score) -> score / 2);
+            accesses.forEach((uri, count) -> hotness.merge(uri, count, Long::sum));
+            hotness.values().removeIf(score -> score == 0);
+
+            Duration ahead = Duration.ofSeconds(aheadSeconds);
+            hotness.forEach((uri, score) -> {
+                if (score < minAccesses || pending.contains(uri)) {
+                    return;
+                }
+                Duration remaining = templateRepository.getRemainingTtl(uri);
+                // Not cached on disk (evicted or never downloaded): the next request loads it
+                if (remaining != null && remaining.compareTo(ahead) <= 0) {
+                    submitRefresh(uri, remaining);
+                }
+            });
+        } catch (Exception e) {
+            // Never let an exception cancel the periodic task
+            log.errorf(e, "Template cache refresher cycle failed");
+        }
+    }
+
+    private void submitRefresh(String uri, Duration remaining) {
+        pending.add(uri);
+        try {
+            refreshPool.execute(() -> refresh(uri));
+            log.debugf("Scheduled refresh-ahead of template: %s (expires in %ds)",
+                    LogSanitizer.sanitizeTemplatePath(uri), remaining.toSeconds());
+        } catch (RejectedExecutionException e) {
+            pending.remove(uri);
+            skipped.increment();
+            log.debugf("Refresh queue full, skipping template this cycle: %s",
+                    LogSanitizer.sanitizeTemplatePath(uri));
+        }
+    }
+
+    private void refresh(String uri) {
+        long start = System.currentTimeMillis();
+        try {
+            templateRepository.refresh(uri);
+            refreshes.increment();
+            log.infof("Template refreshed ahead of expiry: %s (%dms)",
+                    LogSanitizer.sanitizeTemplatePath(uri), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            // The cached copy stays in place; the request after expiry retries inline
+            failures.increment();
+            log.warnf("Refresh-ahead failed for template %s: %s",
+                    LogSanitizer.sanitizeTemplatePath(uri), e.getMessage());
+        } finally {
+            pending.remove(uri);
+        }
+    }
+
+    /**
+     * @return number of templates refreshed in the background
+     */
+    public long getRefreshCount() {
+        return refreshes.sum();
+    }
+
+    /**
+     * @return number of background refreshes that failed
+     */
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    /**
+     * @return number of refreshes skipped because the refresh queue was full
+     */
+    public long getSkippedCount() {
+        return skipped.sum();
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,214 @@
+package pe.soapros.document.infrastructure.repository;
+
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import lombok.extern.jbosslog.JBossLog;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import pe.soapros.document.domain.DocumentFormat;
+import pe.soapros.document.domain.TemplateContent;
+import pe.soapros.document.infrastructure.generation.html.HtmlTemplateGenerator;
+import pe.soapros.document.infrastructure.generation.pdf.XDocPdfGenerator;
+import pe.soapros.document.infrastructure.qualifier.Html;
+import pe.soapros.document.infrastructure.qualifier.Pdf;
+import pe.soapros.document.infrastructure.util.LogSanitizer;
+import pe.soapros.document.infrastructure.util.Util;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup prewarm of the template caches.
+ *
+ * On startup (Lambda init) the templates listed in the manifest are downloaded in parallel
+ * through the template repository (disk + memory tiers) and parsed by the generator of their
+ * format (XDocReport for DOCX/ODT, Mustache for HTML), so the first records of a cold
+ * instance do not pay download and first-parse costs.
+ *
+ * Manifest sources (both optional, combined):
+ * - app.templates.prewarm.uris: explicit template URIs (s3@, fs@, http@, https@)
+ * - app.templates.prewarm.s3-prefix: every object under this prefix in aws.s3.bucket.templates,
+ *   exposed as s3@{s3-uri-host}:{key}. The host must be the one used by incoming messages,
+ *   because the cache is keyed by the full URI.
+ *
+ * The whole prewarm is bounded by app.templates.prewarm.budget-ms: templates not ready when
+ * the budget runs out are cancelled and simply loaded on first use.
+ */
+@ApplicationScoped
+@JBossLog
+public class TemplatePrewarmer {
+
+    @Inject
+    InfraTemplateRepository templateRepository;
+
+    @Inject
+    S3Client s3Client;
+
+    @Inject
+    @Pdf
+    XDocPdfGenerator pdfGenerator;
+
+    @Inject
+    @Html
+    HtmlTemplateGenerator htmlGenerator;
+
+    @ConfigProperty(name = "app.templates.prewarm.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "app.templates.prewarm.uris")
+    Optional<List<String>> manifestUris;
+
+    @ConfigProperty(name = "app.templates.prewarm.s3-prefix")
+    Optional<String> s3Prefix;
+
+    @ConfigProperty(name = "app.templates.prewarm.s3-uri-host", defaultValue = "templates")
+    String s3UriHost;
+
+    @ConfigProperty(name = "aws.s3.bucket.templates", defaultValue = "nexux-templates")
+    String templatesBucket;
+
+    @ConfigProperty(name = "app.templates.prewarm.max-templates", defaultValue = "32")
+    int maxTemplates;
+
+    @ConfigProperty(name = "app.templates.prewarm.parallelism", defaultValue = "4")
+    int parallelism;
+
+    @ConfigProperty(name = "app.templates.prewarm.budget-ms", defaultValue = "3000")
+    long budgetMs;
+
+    void onStart(@Observes StartupEvent event) {
+        if (!enabled) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            List<String> uris = resolveManifest();
+            if (uris.isEmpty()) {
+                log.debug("No templates configured for prewarm");
+                return;
+            }
+            prewarm(uris, start + budgetMs);
+        } catch (Exception e) {
+            // Prewarm is best effort: never fail startup because of it
+            log.warnf("Template prewarm failed: %s", e.getMessage());
+        }
+    }
+
+    /**
+     * Builds the list of template URIs to prewarm (explicit URIs first, then the S3 prefix).
+     *
+     * @return distinct URIs, at most max-templates
+     */
+    private List<String> resolveManifest() {
+        Set<String> uris = new LinkedHashSet<>();
+        manifestUris.ifPresent(list -> list.stream()
+                .map(String::trim)
+                .filter(uri -> !uri.isEmpty())
+                .forEach(uris::add));
+
+        if (s3Prefix.isPresent() && !s3Prefix.get().isBlank() && uris.size() < maxTemplates) {
+            ListObjectsV2Request request = ListObjectsV2Request.builder()
+                    .bucket(templatesBucket)
+                    .prefix(s3Prefix.get())
+                    .build();
+            s3Client.listObjectsV2Paginator(request).contents().stream()
+                    .map(S3Object::key)
+                    .filter(key -> !key.endsWith("/"))
+                    .limit(maxTemplates)
+                    .forEach(key -> uris.add("s3@" + s3UriHost + ":" + key));
+        }
+
+        return uris.stream().limit(maxTemplates).toList();
+    }
+
+    /**
+     * Downloads and parses templates in parallel until done or until the deadline.
+     *
+     * @param uris template URIs
+     * @param deadline epoch millis after which pending templates are cancelled
+     */
+    private void prewarm(List<String> uris, long deadline) throws InterruptedException {
+        log.infof("Prewarming %d template(s) (parallelism: %d, budget: %dms)", uris.size(), parallelism, budgetMs);
+
+        List<Callable<String>> tasks = new ArrayList<>();
+        for (String uri : uris) {
+            tasks.add(() -> prewarm(uri));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, uris.size())));
+        int warmed = 0;
+        int failed = 0;
+        int timedOut = 0;
+        try {
+            long remaining = Math.max(0, deadline - System.currentTimeMillis());
+            List<Future<String>> futures = executor.invokeAll(tasks, remaining, TimeUnit.MILLISECONDS);
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    futures.get(i).get();
+                    warmed++;
+                } catch (CancellationException e) {
+                    timedOut++;
+                } catch (ExecutionException e) {
+                    failed++;
+                    log.warnf("Could not prewarm template %s: %s",
+                            LogSanitizer.sanitizeTemplatePath(uris.get(i)), e.getCause().getMessage());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        log.infof("Template prewarm finished: %d ready, %d failed, %d over budget (%dms)",
+                warmed, failed, timedOut, System.currentTimeMillis() - (deadline - budgetMs));
+    }
+
+    /**
+     * Loads one template into the repository caches and parses it with its generator.
+     *
+     * @param uri the template URI
+     * @return the URI (for logging)
+     */
+    private String prewarm(String uri) {
+        TemplateContent content = templateRepository.getTemplateContent(uri);
+
+        DocumentFormat format = formatOf(uri);
+        if (format == DocumentFormat.PDF) {
+            pdfGenerator.preload(content);
+        } else if (format == DocumentFormat.HTML) {
+            htmlGenerator.preload(content);
+        }
+
+        log.debugf("Template prewarmed: %s (%s)",
+                LogSanitizer.sanitizeTemplatePath(uri), LogSanitizer.sanitizeByteCount(content.size()));
+        return uri;
+    }
+
+    /**
+     * Infers the generator of a template from its extension.
+     *
+     * @param uri the template URI
+     * @return PDF for DOCX/ODT, HTML for HTML/Mustache, null if the template needs no parsing
+     */
+    private DocumentFormat formatOf(String uri) {
+        return switch (Util.getExtensionFile(uri).toLowerCase()) {
+            case "docx", "odt" -> DocumentFormat.PDF;
+            case "html", "htm", "mustache" -> DocumentFormat.HTML;
+            default -> null;
+        };
+    }
+}
@@ -0,0 +1,14 @@
+package pe.soapros.document.infrastructure.repository;
+
+/**
+ * CDI event fired by {@link InfraTemplateRepository} every time a template is
+ * (re-)downloaded into the local cache.
+ *
+ * Generators that keep compiled templates in memory observe it to drop entries
+ * built from the previous version of the cached file.
+ *
+ * @param uri the original template URI (e.g., "s3@host:key")
+ * @param cachedPath absolute path of the cached file that was rewritten
+ */
+public record TemplateRefreshedEvent(String uri, String cachedPath) {
+}
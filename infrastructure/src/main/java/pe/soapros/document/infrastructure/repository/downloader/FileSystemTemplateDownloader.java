@@ -18,6 +18,8 @@ import java.nio.file.StandardCopyOption;
  * - Network file systems (NFS, SMB)
  * - Shared volumes in Docker
  * - Local development with absolute paths
+ *
+ * Revalidation compares the source last-modified time and size with the cached validator.
  */
 @ApplicationScoped
 @JBossLog
@@ -29,20 +31,10 @@ public class FileSystemTemplateDownloader implements TemplateDownloader {
     }
 
     @Override
-    public void download(String uri, File targetFile) throws Exception {
+    public TemplateValidator download(String uri, File targetFile) throws Exception {
         log.infof("Copying from filesystem: %s", LogSanitizer.sanitizePath(uri));
 
-        // Remove "fs@" prefix to get the actual path
-        String sourcePath = uri.substring(3);
-        File sourceFile = new File(sourcePath);
-
-        if (!sourceFile.exists()) {
-            throw new IOException("Source file not found: " + LogSanitizer.sanitizePath(sourcePath));
-        }
-
-        if (!sourceFile.canRead()) {
-            throw new IOException("Cannot read source file: " + LogSanitizer.sanitizePath(sourcePath));
-        }
+        File sourceFile = resolveSource(uri);
 
         // Copy to target
         try {
@@ -51,10 +43,50 @@ public class FileSystemTemplateDownloader implements TemplateDownloader {
                 LogSanitizer.sanitizeByteCount(sourceFile.length()),
                 LogSanitizer.sanitizePath(sourceFile.getName()),
                 LogSanitizer.sanitizePath(targetFile.getName()));
+            return validatorOf(sourceFile);
         } catch (IOException e) {
             log.errorf(e, "Failed to copy from filesystem: %s",
                 LogSanitizer.sanitizePath(uri));
             throw e;
         }
     }
+
+    @Override
+    public RevalidationResult revalidate(String uri, File targetFile, TemplateValidator validator) throws Exception {
+        File sourceFile = resolveSource(uri);
+        TemplateValidator current = validatorOf(sourceFile);
+
+        if (current.equals(validator)) {
+            log.debugf("Filesystem template not modified: %s", LogSanitizer.sanitizePath(uri));
+            return RevalidationResult.notModified(current);
+        }
+
+        return RevalidationResult.modified(download(uri, targetFile));
+    }
+
+    /**
+     * Resolves and checks the source file of a "fs@" URI.
+     */
+    private File resolveSource(String uri) throws IOException {
+        // Remove "fs@" prefix to get the actual path
+        String sourcePath = uri.substring(3);
+        File sourceFile = new File(sourcePath);
+
+        if (!sourceFile.exists()) {
+            throw new TemplateSourceNotFoundException("Source file not found: " + LogSanitizer.sanitizePath(sourcePath));
+        }
+
+        if (!sourceFile.canRead()) {
+            throw new IOException("Cannot read source file: " + LogSanitizer.sanitizePath(sourcePath));
+        }
+        return sourceFile;
+    }
+
+    /**
+     * Builds the validator of a source file: last-modified time as etag-like token plus size.
+     */
+    private TemplateValidator validatorOf(File sourceFile) {
+        return new TemplateValidator(sourceFile.lastModified() + "-" + sourceFile.length(),
+                String.valueOf(sourceFile.lastModified()));
+    }
 }
@@ -20,6 +20,8 @@ import java.net.URL;
  *   - https@https://secure.example.com/templates/report.odt
  *
  * Note: The protocol after @ should be the actual HTTP/HTTPS URL
+ *
+ * Revalidation uses conditional GET with the ETag and Last-Modified headers.
  */
 @ApplicationScoped
 @JBossLog
@@ -27,6 +29,7 @@ public class HttpTemplateDownloader implements TemplateDownloader {
 
     private static final int CONNECT_TIMEOUT = 10000; // 10 seconds
     private static final int READ_TIMEOUT = 30000;    // 30 seconds
+    private static final int HTTP_GONE = 410;
 
     @Override
     public String getProtocol() {
@@ -40,8 +43,32 @@ public class HttpTemplateDownloader implements TemplateDownloader {
     }
 
     @Override
-    public void download(String uri, File targetFile) throws Exception {
-        log.infof("Downloading from HTTP(S): %s", LogSanitizer.sanitizeHttpUrl(uri));
+    public TemplateValidator download(String uri, File targetFile) throws Exception {
+        return fetch(uri, targetFile, null).validator();
+    }
+
+    /**
+     * Revalidates with a conditional GET (If-None-Match / If-Modified-Since).
+     * A 304 response means the cached file is still current; a 200 response
+     * carries the new content, which is written to the target file.
+     */
+    @Override
+    public RevalidationResult revalidate(String uri, File targetFile, TemplateValidator validator) throws Exception {
+        return fetch(uri, targetFile, validator);
+    }
+
+    /**
+     * Performs a GET, conditional if a validator is given.
+     *
+     * @param uri the template URI
+     * @param targetFile the file where the body is written on a 200 response
+     * @param validator the cached validator, or null for an unconditional download
+     * @return revalidation result with the validator of the current version
+     */
+    private RevalidationResult fetch(String uri, File targetFile, TemplateValidator validator) throws Exception {
+        boolean conditional = validator != null && !validator.isEmpty();
+        log.infof("%s from HTTP(S): %s", conditional ? "Revalidating" : "Downloading",
+            LogSanitizer.sanitizeHttpUrl(uri));
 
         // Extract actual URL
         String actualUrl = extractUrl(uri);
@@ -54,8 +81,28 @@ public class HttpTemplateDownloader implements TemplateDownloader {
         connection.setReadTimeout(READ_TIMEOUT);
         connection.setRequestMethod("GET");
 
+        if (conditional) {
+            if (validator.etag() != null) {
+                connection.setRequestProperty("If-None-Match", validator.etag());
+            }
+            if (validator.lastModified() != null) {
+                connection.setRequestProperty("If-Modified-Since", validator.lastModified());
+            }
+        }
+
         try {
             int responseCode = connection.getResponseCode();
+            if (conditional && responseCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                log.debugf("HTTP template not modified: %s", LogSanitizer.sanitizeHttpUrl(actualUrl));
+                // Servers may send updated validators with a 304
+                return RevalidationResult.notModified(new TemplateValidator(
+                        headerOrDefault(connection, "ETag", validator.etag()),
+                        headerOrDefault(connection, "Last-Modified", validator.lastModified())));
+            }
+            if (responseCode == HttpURLConnection.HTTP_NOT_FOUND || responseCode == HTTP_GONE) {
+                throw new TemplateSourceNotFoundException("HTTP error: " + responseCode + " for URL: " +
+                    LogSanitizer.sanitizeHttpUrl(actualUrl));
+            }
             if (responseCode != HttpURLConnection.HTTP_OK) {
                 throw new IOException("HTTP error: " + responseCode + " for URL: " +
                     LogSanitizer.sanitizeHttpUrl(actualUrl));
@@ -78,6 +125,10 @@ public class HttpTemplateDownloader implements TemplateDownloader {
                     LogSanitizer.sanitizeHttpUrl(actualUrl),
                     LogSanitizer.sanitizePath(targetFile.getName()));
             }
+
+            return RevalidationResult.modified(new TemplateValidator(
+                    connection.getHeaderField("ETag"),
+                    connection.getHeaderField("Last-Modified")));
         } catch (IOException e) {
             log.errorf(e, "Failed to download from HTTP(S): %s",
                 LogSanitizer.sanitizeHttpUrl(uri));
@@ -87,6 +138,11 @@ public class HttpTemplateDownloader implements TemplateDownloader {
         }
     }
 
+    private String headerOrDefault(HttpURLConnection connection, String header, String defaultValue) {
+        String value = connection.getHeaderField(header);
+        return value != null ? value : defaultValue;
+    }
+
     /**
      * Extracts the actual URL from the URI.
      * Format: http@https://example.com/file or https@https://example.com/file
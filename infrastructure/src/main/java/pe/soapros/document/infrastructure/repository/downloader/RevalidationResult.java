@@ -0,0 +1,18 @@
+package pe.soapros.document.infrastructure.repository.downloader;
+
+/**
+ * Outcome of a conditional revalidation of a cached template.
+ *
+ * @param modified true if the source changed and the new content was written to the target file
+ * @param validator the validator to persist for the next revalidation
+ */
+public record RevalidationResult(boolean modified, TemplateValidator validator) {
+
+    public static RevalidationResult notModified(TemplateValidator validator) {
+        return new RevalidationResult(false, validator);
+    }
+
+    public static RevalidationResult modified(TemplateValidator validator) {
+        return new RevalidationResult(true, validator);
+    }
+}
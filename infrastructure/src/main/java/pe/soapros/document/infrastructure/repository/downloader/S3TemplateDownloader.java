@@ -9,10 +9,12 @@ import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.time.Instant;
 
 /**
  * Downloads templates from AWS S3.
@@ -23,6 +25,9 @@ import java.io.IOException;
 @JBossLog
 public class S3TemplateDownloader implements TemplateDownloader {
 
+    private static final int HTTP_NOT_MODIFIED = 304;
+    private static final int HTTP_NOT_FOUND = 404;
+
     @Inject
     S3Client s3Client;
 
@@ -35,8 +40,32 @@ public class S3TemplateDownloader implements TemplateDownloader {
     }
 
     @Override
-    public void download(String uri, File targetFile) throws Exception {
-        log.infof("Downloading from S3: %s", LogSanitizer.sanitizeS3Uri(uri));
+    public TemplateValidator download(String uri, File targetFile) throws Exception {
+        return fetch(uri, targetFile, null).validator();
+    }
+
+    /**
+     * Revalidates with a conditional GetObject (If-None-Match on the ETag, or
+     * If-Modified-Since when no ETag was stored). S3 answers 304 when unchanged,
+     * otherwise the new object is streamed to the target file in the same round trip.
+     */
+    @Override
+    public RevalidationResult revalidate(String uri, File targetFile, TemplateValidator validator) throws Exception {
+        return fetch(uri, targetFile, validator);
+    }
+
+    /**
+     * Performs a GetObject, conditional if a validator is given.
+     *
+     * @param uri the template URI
+     * @param targetFile the file where the object is written if it is returned
+     * @param validator the cached validator, or null for an unconditional download
+     * @return revalidation result with the validator of the current version
+     */
+    private RevalidationResult fetch(String uri, File targetFile, TemplateValidator validator) throws Exception {
+        boolean conditional = validator != null && !validator.isEmpty();
+        log.infof("%s from S3: %s", conditional ? "Revalidating" : "Downloading",
+            LogSanitizer.sanitizeS3Uri(uri));
 
         // Parse S3 URI
         S3UriInfo uriInfo = parseS3Uri(uri);
@@ -45,12 +74,19 @@ public class S3TemplateDownloader implements TemplateDownloader {
             LogSanitizer.sanitizePath(uriInfo.key));
 
         // Download from S3
-        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+        GetObjectRequest.Builder requestBuilder = GetObjectRequest.builder()
                 .bucket(uriInfo.bucket)
-                .key(uriInfo.key)
-                .build();
+                .key(uriInfo.key);
 
-        try (ResponseInputStream<GetObjectResponse> s3Object = s3Client.getObject(getObjectRequest);
+        if (conditional) {
+            if (validator.etag() != null) {
+                requestBuilder.ifNoneMatch(validator.etag());
+            } else {
+                requestBuilder.ifModifiedSince(Instant.parse(validator.lastModified()));
+            }
+        }
+
+        try (ResponseInputStream<GetObjectResponse> s3Object = s3Client.getObject(requestBuilder.build());
              FileOutputStream fos = new FileOutputStream(targetFile)) {
 
             byte[] buffer = new byte[8192];
@@ -65,6 +101,24 @@ public class S3TemplateDownloader implements TemplateDownloader {
             log.infof("Downloaded %s from S3 to %s",
                 LogSanitizer.sanitizeByteCount(totalBytes),
                 LogSanitizer.sanitizePath(targetFile.getName()));
+
+            GetObjectResponse response = s3Object.response();
+            return RevalidationResult.modified(new TemplateValidator(
+                    response.eTag(),
+                    response.lastModified() != null ? response.lastModified().toString() : null));
+        } catch (S3Exception e) {
+            if (conditional && e.statusCode() == HTTP_NOT_MODIFIED) {
+                log.debugf("S3 template not modified: %s", LogSanitizer.sanitizeS3Uri(uri));
+                return RevalidationResult.notModified(validator);
+            }
+            if (e.statusCode() == HTTP_NOT_FOUND) {
+                // NoSuchKey: not transient, no stack trace needed
+                log.warnf("Template not found in S3: %s", LogSanitizer.sanitizeS3Uri(uri));
+                throw new TemplateSourceNotFoundException("S3 object not found: " + LogSanitizer.sanitizePath(uriInfo.key), e);
+            }
+            log.errorf(e, "Failed to download from S3: %s",
+                LogSanitizer.sanitizeS3Uri(uri));
+            throw e;
         } catch (IOException e) {
             log.errorf(e, "Failed to download from S3: %s",
                 LogSanitizer.sanitizeS3Uri(uri));
@@ -5,6 +5,10 @@ import java.io.File;
 /**
  * Strategy interface for downloading templates from different sources.
  * Each implementation handles a specific protocol (s3@, fs@, http@, etc.)
+ *
+ * The target file passed by the repository is a temporary file next to the cache entry:
+ * implementations may stream into it directly, the repository publishes it with an atomic
+ * rename once complete, so readers never see a partially written template.
  */
 public interface TemplateDownloader {
 
@@ -20,10 +24,28 @@ public interface TemplateDownloader {
      * Downloads a template from the source and saves it to the target file.
      *
      * @param uri the full URI (e.g., "s3@host:key")
-     * @param targetFile the local file where the template should be saved
+     * @param targetFile the (temporary) local file where the template should be saved
+     * @return the validator of the downloaded version ({@link TemplateValidator#NONE} if the source has none)
      * @throws Exception if download fails
      */
-    void download(String uri, File targetFile) throws Exception;
+    TemplateValidator download(String uri, File targetFile) throws Exception;
+
+    /**
+     * Revalidates a cached template against its source with a conditional request.
+     * If the source changed, the new content is written to the target file; otherwise the
+     * target file is left untouched and the cached copy stays in place.
+     *
+     * Default implementation: unconditional download.
+     *
+     * @param uri the full URI (e.g., "s3@host:key")
+     * @param targetFile the (temporary) file written only if the source changed
+     * @param validator the validator persisted with the cached file
+     * @return whether the template was modified, and the validator to persist
+     * @throws Exception if revalidation fails
+     */
+    default RevalidationResult revalidate(String uri, File targetFile, TemplateValidator validator) throws Exception {
+        return RevalidationResult.modified(download(uri, targetFile));
+    }
 
     /**
      * Checks if this downloader supports the given URI.
@@ -0,0 +1,21 @@
+package pe.soapros.document.infrastructure.repository.downloader;
+
+import java.io.IOException;
+
+/**
+ * Thrown by a downloader when the template does not exist at its source
+ * (S3 NoSuchKey, HTTP 404/410, missing file).
+ *
+ * Unlike other download failures this is not transient, so the repository
+ * remembers it longer in its negative cache.
+ */
+public class TemplateSourceNotFoundException extends IOException {
+
+    public TemplateSourceNotFoundException(String message) {
+        super(message);
+    }
+
+    public TemplateSourceNotFoundException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
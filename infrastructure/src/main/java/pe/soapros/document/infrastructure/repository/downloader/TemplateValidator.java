@@ -0,0 +1,61 @@
+package pe.soapros.document.infrastructure.repository.downloader;
+
+import java.util.Properties;
+
+/**
+ * Cache validator of a downloaded template, as reported by its source.
+ * Persisted next to each cached file so an expired entry can be revalidated
+ * with a conditional request instead of being downloaded again.
+ *
+ * - S3: ETag (If-None-Match) and Last-Modified
+ * - HTTP(S): ETag (If-None-Match) and Last-Modified (If-Modified-Since)
+ * - Filesystem: source last-modified time and size
+ *
+ * @param etag entity tag of the source object (may be null)
+ * @param lastModified last-modified value as reported by the source (may be null)
+ */
+public record TemplateValidator(String etag, String lastModified) {
+
+    private static final String ETAG_PROPERTY = "etag";
+    private static final String LAST_MODIFIED_PROPERTY = "last-modified";
+
+    /**
+     * Validator used when the source does not expose any.
+     */
+    public static final TemplateValidator NONE = new TemplateValidator(null, null);
+
+    /**
+     * @return true if there is nothing to revalidate with
+     */
+    public boolean isEmpty() {
+        return (etag == null || etag.isEmpty()) && (lastModified == null || lastModified.isEmpty());
+    }
+
+    /**
+     * Converts the validator to properties for persistence.
+     *
+     * @return properties with the non-null values
+     */
+    public Properties toProperties() {
+        Properties properties = new Properties();
+        if (etag != null) {
+            properties.setProperty(ETAG_PROPERTY, etag);
+        }
+        if (lastModified != null) {
+            properties.setProperty(LAST_MODIFIED_PROPERTY, lastModified);
+        }
+        return properties;
+    }
+
+    /**
+     * Restores a validator from persisted properties.
+     *
+     * @param properties the persisted properties
+     * @return the validator
+     */
+    public static TemplateValidator fromProperties(Properties properties) {
+        return new TemplateValidator(
+                properties.getProperty(ETAG_PROPERTY),
+                properties.getProperty(LAST_MODIFIED_PROPERTY));
+    }
+}
@@ -0,0 +1,293 @@
+package pe.soapros.document.infrastructure.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Thread-safe LRU cache bounded by a total weight.
+ *
+ * The weight of each entry is computed by a weigher function (1 per entry for
+ * count-bounded caches, byte size for memory-bounded caches). When the total weight
+ * exceeds the limit, the least recently used entries are evicted and passed to the
+ * eviction listener so that the owner can release associated resources.
+ *
+ * Loading happens outside the lock: two threads missing the same key at the same time
+ * may both load it, the first one to finish wins and the other value is handed to the
+ * eviction listener. Hit, miss and eviction counters are kept for observability.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class BoundedLruCache<K, V> {
+
+    private final String name;
+    private final long maxWeight;
+    private final ToLongFunction<? super V> weigher;
+    private final BiConsumer<? super K, ? super V> evictionListener;
+
+    private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long currentWeight;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a cache bounded by total weight.
+     *
+     * @param name cache name used in logs and stats
+     * @param maxWeight maximum total weight of all entries
+     * @param weigher function computing the weight of a value
+     * @param evictionListener callback invoked (outside the lock) for every evicted or discarded value
+     */
+    public BoundedLruCache(String name, long maxWeight,
+                           ToLongFunction<? super V> weigher,
+                           BiConsumer<? super K, ? super V> evictionListener) {
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("maxWeight must be positive for cache " + name);
+        }
+        this.name = name;
+        this.maxWeight = maxWeight;
+        this.weigher = Objects.requireNonNull(weigher);
+        this.evictionListener = evictionListener != null ? evictionListener : (k, v) -> { };
+    }
+
+    /**
+     * Creates a cache bounded by number of entries.
+     *
+     * @param name cache name used in logs and stats
+     * @param maxEntries maximum number of entries
+     * @param evictionListener callback for evicted values (may be null)
+     */
+    public static <K, V> BoundedLruCache<K, V> ofMaxEntries(String name, int maxEntries,
+                                                            BiConsumer<? super K, ? super V> evictionListener) {
+        return new BoundedLruCache<>(name, maxEntries, value -> 1L, evictionListener);
+    }
+
+    /**
+     * Returns the cached value, or null if absent. Counts a hit or a miss.
+     *
+     * @param key the key
+     * @return the cached value or null
+     */
+    public V get(K key) {
+        V value;
+        synchronized (entries) {
+            value = entries.get(key);
+        }
+        if (value != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return value;
+    }
+
+    /**
+     * Returns the cached value or loads and caches it.
+     *
+     * @param key the key
+     * @param loader function that builds the value on a miss (may throw unchecked exceptions)
+     * @return the cached or freshly loaded value
+     */
+    public V getOrLoad(K key, Function<? super K, ? extends V> loader) {
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        return putIfAbsent(key, loader.apply(key));
+    }
+
+    /**
+     * Caches a value unless another value is already cached for the key.
+     * If the key is already present, the new value is discarded through the eviction listener.
+     *
+     * @param key the key
+     * @param value the value to cache
+     * @return the value that ends up associated with the key
+     */
+    public V putIfAbsent(K key, V value) {
+        Objects.requireNonNull(value);
+        V winner;
+        List<Map.Entry<K, V>> evicted = new ArrayList<>();
+        synchronized (entries) {
+            V existing = entries.get(key);
+            if (existing != null) {
+                winner = existing;
+                evicted.add(Map.entry(key, value));
+            } else {
+                winner = value;
+                insert(key, value, evicted);
+            }
+        }
+        notifyEvicted(evicted);
+        return winner;
+    }
+
+    /**
+     * Caches a value, replacing (and discarding) any previous value for the key.
+     *
+     * @param key the key
+     * @param value the value to cache
+     */
+    public void put(K key, V value) {
+        Objects.requireNonNull(value);
+        List<Map.Entry<K, V>> evicted = new ArrayList<>();
+        synchronized (entries) {
+            V previous = entries.remove(key);
+            if (previous != null) {
+                currentWeight -= weigher.applyAsLong(previous);
+                evicted.add(Map.entry(key, previous));
+            }
+            insert(key, value, evicted);
+        }
+        notifyEvicted(evicted);
+    }
+
+    /**
+     * Replaces the value of an existing entry, keeping its position in the LRU order.
+     * Does nothing if the key is absent. If the new value is heavier, least recently used
+     * entries are evicted to stay within the bound (the entry itself if it no longer fits).
+     *
+     * @param key the key
+     * @param remapping function computing the new value from the current one
+     */
+    public void computeIfPresent(K key, UnaryOperator<V> remapping) {
+        List<Map.Entry<K, V>> evicted = new ArrayList<>();
+        synchronized (entries) {
+            V current = entries.get(key);
+            if (current == null) {
+                return;
+            }
+            V updated = Objects.requireNonNull(remapping.apply(current));
+            long weight = weigher.applyAsLong(updated);
+            currentWeight -= weigher.applyAsLong(current);
+            if (weight > maxWeight) {
+                // Too big to ever fit: drop the entry, as insert() would
+                entries.remove(key);
+                evicted.add(Map.entry(key, updated));
+                evictions.increment();
+            } else {
+                entries.put(key, updated);
+                currentWeight += weight;
+                evictOverweight(key, evicted);
+            }
+        }
+        notifyEvicted(evicted);
+    }
+
+    /**
+     * Removes the entry for a key.
+     *
+     * @param key the key
+     * @return the removed value, or null if absent
+     */
+    public V invalidate(K key) {
+        V removed;
+        synchronized (entries) {
+            removed = entries.remove(key);
+            if (removed != null) {
+                currentWeight -= weigher.applyAsLong(removed);
+            }
+        }
+        if (removed != null) {
+            evictionListener.accept(key, removed);
+        }
+        return removed;
+    }
+
+    /**
+     * Removes all entries matching a predicate.
+     *
+     * @param predicate condition over key and value
+     * @return number of removed entries
+     */
+    public int invalidateIf(BiPredicate<? super K, ? super V> predicate) {
+        List<Map.Entry<K, V>> removed = new ArrayList<>();
+        synchronized (entries) {
+            Iterator<Map.Entry<K, V>> it = entries.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<K, V> entry = it.next();
+                if (predicate.test(entry.getKey(), entry.getValue())) {
+                    currentWeight -= weigher.applyAsLong(entry.getValue());
+                    removed.add(Map.entry(entry.getKey(), entry.getValue()));
+                    it.remove();
+                }
+            }
+        }
+        notifyEvicted(removed);
+        return removed.size();
+    }
+
+    /**
+     * Returns a snapshot of the cache counters.
+     *
+     * @return cache statistics
+     */
+    public Stats stats() {
+        synchronized (entries) {
+            return new Stats(name, hits.sum(), misses.sum(), evictions.sum(), entries.size(), currentWeight, maxWeight);
+        }
+    }
+
+    private void insert(K key, V value, List<Map.Entry<K, V>> evicted) {
+        long weight = weigher.applyAsLong(value);
+        if (weight > maxWeight) {
+            // Too big to ever fit: hand it back to the caller without caching it
+            return;
+        }
+        entries.put(key, value);
+        currentWeight += weight;
+        evictOverweight(key, evicted);
+    }
+
+    /**
+     * Evicts least recently used entries (never the given key) until the total weight fits.
+     */
+    private void evictOverweight(K key, List<Map.Entry<K, V>> evicted) {
+        Iterator<Map.Entry<K, V>> it = entries.entrySet().iterator();
+        while (currentWeight > maxWeight && it.hasNext()) {
+            Map.Entry<K, V> eldest = it.next();
+            if (eldest.getKey().equals(key)) {
+                continue;
+            }
+            currentWeight -= weigher.applyAsLong(eldest.getValue());
+            evicted.add(Map.entry(eldest.getKey(), eldest.getValue()));
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    private void notifyEvicted(List<Map.Entry<K, V>> evicted) {
+        for (Map.Entry<K, V> entry : evicted) {
+            evictionListener.accept(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Immutable snapshot of cache counters.
+     */
+    public record Stats(String name, long hits, long misses, long evictions, int size, long weight, long maxWeight) {
+
+        public double hitRatio() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s{hits=%d, misses=%d, hitRatio=%.2f, evictions=%d, size=%d, weight=%d/%d}",
+                    name, hits, misses, hitRatio(), evictions, size, weight, maxWeight);
+        }
+    }
+}
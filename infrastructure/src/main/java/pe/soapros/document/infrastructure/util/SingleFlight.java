@@ -0,0 +1,90 @@
+package pe.soapros.document.infrastructure.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent executions of the same task.
+ *
+ * The first caller for a key (the leader) runs the task; callers arriving while it is
+ * in flight wait on the leader's future and receive the same value or exception.
+ * Once the task completes the key is released, so later callers run it again.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalescedWaits = new LongAdder();
+
+    /**
+     * Runs the task for a key, or waits for the execution already in flight.
+     *
+     * @param key the key identifying the task
+     * @param task the task (may throw unchecked exceptions, which are propagated to all waiters)
+     * @return the task result
+     */
+    public V execute(K key, Supplier<V> task) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            coalescedWaits.increment();
+            return await(existing);
+        }
+
+        executions.increment();
+        try {
+            V value = task.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * @return true if an execution is currently in flight for the key
+     */
+    public boolean isInFlight(K key) {
+        return inFlight.containsKey(key);
+    }
+
+    /**
+     * @return number of tasks actually executed (leaders)
+     */
+    public long getExecutions() {
+        return executions.sum();
+    }
+
+    /**
+     * @return number of callers that waited on an execution already in flight
+     */
+    public long getCoalescedWaits() {
+        return coalescedWaits.sum();
+    }
+
+    private V await(CompletableFuture<V> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
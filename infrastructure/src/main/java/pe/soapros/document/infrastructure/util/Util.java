@@ -1,5 +1,9 @@
 package pe.soapros.document.infrastructure.util;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
 public class Util {
     public static String getExtensionFile(String path){
         String extension = "";
@@ -9,4 +13,20 @@ public class Util {
         }
         return extension;
     }
+
+    /**
+     * Computes the SHA-256 fingerprint of a content as lowercase hex.
+     *
+     * @param content the bytes to hash
+     * @return hex-encoded SHA-256 digest
+     */
+    public static String sha256Hex(byte[] content) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is mandatory on every JVM
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
 }
@@ -0,0 +1,94 @@
+package pe.soapros.document.infrastructure.generation;
+
+import org.junit.jupiter.api.Test;
+import pe.soapros.document.domain.TemplateRequest;
+import pe.soapros.document.domain.exception.DocumentOverloadedException;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AdmissionController reservations.
+ */
+class AdmissionControllerTest {
+
+    static AdmissionController controller(double heapWatermark, long maxWaitMs) {
+        AdmissionController controller = new AdmissionController();
+        controller.enabled = true;
+        controller.heapWatermark = heapWatermark;
+        controller.maxWaitMs = maxWaitMs;
+        controller.pdfBaseBytes = 1000;
+        controller.htmlBaseBytes = 100;
+        controller.txtBaseBytes = 10;
+        controller.expansionFactor = 10;
+        return controller;
+    }
+
+    static TemplateRequest request(String fileType) {
+        TemplateRequest request = new TemplateRequest();
+        request.setTemplatePath("template.txt");
+        request.setFileType(fileType);
+        request.setData(Map.of("name", "value"));
+        return request;
+    }
+
+    @Test
+    void testAdmit_ReservesUntilClosed() {
+        // Given
+        AdmissionController controller = controller(1.0, 100);
+        TemplateRequest request = request("pdf");
+        long cost = controller.estimateCost(request);
+
+        // When
+        AdmissionController.Reservation reservation = controller.admit(request);
+
+        // Then
+        assertTrue(cost > 1000);
+        assertEquals(cost, controller.getReservedBytes());
+        reservation.close();
+        reservation.close();
+        assertEquals(0, controller.getReservedBytes());
+        assertEquals(1, controller.getAdmittedCount());
+    }
+
+    @Test
+    void testAdmit_AlwaysAdmitsWhenNothingReserved() {
+        // Given: no heap available at all
+        AdmissionController controller = controller(0.0, 100);
+
+        // When
+        AdmissionController.Reservation reservation = controller.admit(request("pdf"));
+
+        // Then
+        assertTrue(controller.getReservedBytes() > 0);
+        reservation.close();
+    }
+
+    @Test
+    void testAdmit_RejectsAfterMaxWait() {
+        // Given
+        AdmissionController controller = controller(0.0, 100);
+        AdmissionController.Reservation held = controller.admit(request("pdf"));
+
+        // When / Then
+        assertThrows(DocumentOverloadedException.class, () -> controller.admit(request("html")));
+        assertEquals(1, controller.getRejectedCount());
+        held.close();
+        assertEquals(0, controller.getReservedBytes());
+    }
+
+    @Test
+    void testAdmit_DisabledReservesNothing() {
+        // Given
+        AdmissionController controller = controller(0.0, 100);
+        controller.enabled = false;
+
+        // When
+        AdmissionController.Reservation reservation = controller.admit(request("pdf"));
+
+        // Then
+        assertEquals(0, controller.getReservedBytes());
+        reservation.close();
+    }
+}
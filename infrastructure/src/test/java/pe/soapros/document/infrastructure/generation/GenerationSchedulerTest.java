@@ -0,0 +1,246 @@
+package pe.soapros.document.infrastructure.generation;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import pe.soapros.document.application.GenerateDocumentUseCase;
+import pe.soapros.document.domain.DocumentFormat;
+import pe.soapros.document.domain.TemplateContent;
+import pe.soapros.document.domain.TemplateRepository;
+import pe.soapros.document.domain.TemplateRequest;
+import pe.soapros.document.domain.exception.DocumentGenerationException;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for GenerationScheduler ordering and slot release.
+ */
+class GenerationSchedulerTest {
+
+    private GenerationScheduler scheduler;
+
+    /**
+     * Templates are treated as local, so preparing a request does nothing.
+     */
+    private static final TemplateRepository LOCAL_TEMPLATES = new TemplateRepository() {
+        @Override
+        public File getTemplate(String uriFile) {
+            return new File(uriFile);
+        }
+
+        @Override
+        public boolean isLocal(String uriFile) {
+            return true;
+        }
+
+        @Override
+        public TemplateContent getTemplateContent(String uriFile) {
+            throw new UnsupportedOperationException(uriFile);
+        }
+    };
+
+    private GenerationScheduler scheduler(int cpuThreads, int pdfPermits) {
+        AdmissionController admissionController = new AdmissionController();
+        admissionController.enabled = true;
+        admissionController.heapWatermark = 1.0;
+        admissionController.maxWaitMs = 100;
+        admissionController.pdfBaseBytes = 1000;
+        admissionController.htmlBaseBytes = 100;
+        admissionController.txtBaseBytes = 10;
+        admissionController.expansionFactor = 10;
+
+        RenderCostModel renderCostModel = new RenderCostModel();
+        renderCostModel.pdfDefaultMs = 500;
+        renderCostModel.htmlDefaultMs = 20;
+        renderCostModel.txtDefaultMs = 5;
+        renderCostModel.bytesPerMs = 65536;
+
+        scheduler = new GenerationScheduler();
+        scheduler.generateDocumentUseCase = new GenerateDocumentUseCase(null, null, LOCAL_TEMPLATES);
+        scheduler.renderLimiter = RenderLimiterTest.limiter(pdfPermits, 32);
+        scheduler.admissionController = admissionController;
+        scheduler.renderCostModel = renderCostModel;
+        scheduler.cpuThreads = cpuThreads;
+        scheduler.init();
+        return scheduler;
+    }
+
+    private static TemplateRequest request(String templatePath, String fileType) {
+        TemplateRequest request = new TemplateRequest();
+        request.setTemplatePath(templatePath);
+        request.setFileType(fileType);
+        request.setData(Map.of("name", "value"));
+        return request;
+    }
+
+    private static List<TemplateRequest> requests(int count) {
+        List<TemplateRequest> requests = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            requests.add(request("template-" + i + ".odt", "pdf"));
+        }
+        return requests;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    void testGenerateAll_ReturnsResultsInRequestOrder() {
+        // Given: earlier requests render slower
+        GenerationScheduler scheduler = scheduler(4, 4);
+        List<TemplateRequest> requests = requests(6);
+
+        // When
+        List<String> results = scheduler.generateAll(requests, request -> {
+            int index = requests.indexOf(request);
+            sleep(10L * (requests.size() - index));
+            return request.getTemplatePath();
+        });
+
+        // Then
+        assertEquals(requests.stream().map(TemplateRequest::getTemplatePath).toList(), results);
+    }
+
+    @Test
+    void testGenerateAll_ReleasesSlotsAndReportsFirstFailure() {
+        // Given
+        GenerationScheduler scheduler = scheduler(2, 2);
+        List<TemplateRequest> requests = requests(4);
+
+        // When
+        DocumentGenerationException error = assertThrows(DocumentGenerationException.class,
+                () -> scheduler.generateAll(requests, request -> {
+                    int index = requests.indexOf(request);
+                    if (index >= 2) {
+                        throw new DocumentGenerationException("failed " + index);
+                    }
+                    return index;
+                }));
+
+        // Then
+        assertEquals("failed 2", error.getMessage());
+        assertEquals(0, scheduler.renderLimiter.getInFlight(DocumentFormat.PDF));
+        assertEquals(0, scheduler.admissionController.getReservedBytes());
+    }
+
+    @Test
+    void testSubmitAll_HeaviestRecordStartsFirst() throws Exception {
+        // Given: every render slot is taken while the records are submitted
+        GenerationScheduler scheduler = scheduler(4, 1);
+        RenderLimiter.Permit held = scheduler.renderLimiter.acquire(DocumentFormat.PDF);
+        List<Long> started = new CopyOnWriteArrayList<>();
+        List<CompletableFuture<Long>> futures = new ArrayList<>();
+        for (long cost : new long[]{100, 300, 200}) {
+            futures.addAll(scheduler.submitAll(requests(1), request -> {
+                started.add(cost);
+                return cost;
+            }, cost));
+            RenderLimiterTest.awaitWaits(scheduler.renderLimiter, futures.size());
+        }
+
+        // When
+        held.close();
+
+        // Then
+        assertEquals(List.of(100L, 300L, 200L), GenerationScheduler.joinAll(futures));
+        assertEquals(List.of(300L, 200L, 100L), started);
+    }
+
+    @Test
+    void testGenerateGrouped_ReturnsFuturesInRequestOrder() {
+        // Given: groups interleaved across the requests, as the records of a batch are
+        GenerationScheduler scheduler = scheduler(2, 4);
+        List<TemplateRequest> requests = new ArrayList<>();
+        for (String group : List.of("a", "b", "a", "c", "b", "a")) {
+            requests.add(request(group + "-" + requests.size() + ".odt", "pdf"));
+        }
+        List<String> renderThreads = new CopyOnWriteArrayList<>();
+
+        // When
+        List<String> results = GenerationScheduler.joinAll(scheduler.generateGrouped(requests,
+                request -> request.getTemplatePath().substring(0, 1),
+                request -> {
+                    renderThreads.add(Thread.currentThread().getName());
+                    sleep(request.getTemplatePath().startsWith("a") ? 20 : 5);
+                    return request.getTemplatePath();
+                }));
+
+        // Then
+        assertEquals(requests.stream().map(TemplateRequest::getTemplatePath).toList(), results);
+        assertTrue(renderThreads.stream().allMatch(name -> name.startsWith("generation-cpu-")));
+    }
+
+    @Test
+    @Timeout(10)
+    void testGenerateGrouped_WaitingForPermitsDoesNotBlockCpuThreads() throws Exception {
+        // Given: a single CPU thread and no PDF slot left
+        GenerationScheduler scheduler = scheduler(1, 1);
+        RenderLimiter.Permit held = scheduler.renderLimiter.acquire(DocumentFormat.PDF);
+        List<CompletableFuture<String>> grouped = scheduler.generateGrouped(requests(2),
+                TemplateRequest::getTemplatePath, TemplateRequest::getTemplatePath);
+        RenderLimiterTest.awaitWaits(scheduler.renderLimiter, 1);
+
+        // When
+        List<String> html = scheduler.generateAll(List.of(request("page.html", "html")),
+                TemplateRequest::getTemplatePath);
+
+        // Then
+        assertEquals(List.of("page.html"), html);
+        held.close();
+        assertEquals(List.of("template-0.odt", "template-1.odt"), GenerationScheduler.joinAll(grouped));
+    }
+
+    @Test
+    void testJoinAll_WaitsForEveryFutureAndThrowsFirstFailureInOrder() {
+        // Given
+        CompletableFuture<String> slow = new CompletableFuture<>();
+        CompletableFuture<String> first = CompletableFuture.failedFuture(new DocumentGenerationException("first"));
+        CompletableFuture<String> second = CompletableFuture.failedFuture(new DocumentGenerationException("second"));
+        CompletableFuture.runAsync(() -> {
+            sleep(50);
+            slow.complete("slow");
+        });
+
+        // When
+        DocumentGenerationException error = assertThrows(DocumentGenerationException.class,
+                () -> GenerationScheduler.joinAll(List.of(slow, first, second)));
+
+        // Then
+        assertEquals("first", error.getMessage());
+        assertTrue(slow.isDone());
+    }
+
+    @Test
+    void testJoinAll_ReturnsResultsInOrder() {
+        // Given
+        CompletableFuture<String> late = CompletableFuture.supplyAsync(() -> {
+            sleep(50);
+            return "a";
+        });
+
+        // When
+        List<String> results = GenerationScheduler.joinAll(List.of(late, CompletableFuture.completedFuture("b")));
+
+        // Then
+        assertEquals(List.of("a", "b"), results);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package pe.soapros.document.infrastructure.generation;
+
+import org.junit.jupiter.api.Test;
+import pe.soapros.document.domain.TemplateContent;
+import pe.soapros.document.domain.TemplateData;
+import pe.soapros.document.domain.TemplateRequest;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RenderCostModel estimates.
+ */
+class RenderCostModelTest {
+
+    static RenderCostModel model() {
+        RenderCostModel model = new RenderCostModel();
+        model.pdfDefaultMs = 500;
+        model.htmlDefaultMs = 20;
+        model.txtDefaultMs = 5;
+        model.bytesPerMs = 65536;
+        return model;
+    }
+
+    static TemplateRequest request(String templatePath, String fileType) {
+        TemplateRequest request = new TemplateRequest();
+        request.setTemplatePath(templatePath);
+        request.setFileType(fileType);
+        request.setData(Map.of("name", "value"));
+        return request;
+    }
+
+    @Test
+    void testEstimateMs_UnknownTemplateUsesFormatDefault() {
+        // Given
+        RenderCostModel model = model();
+
+        // When / Then
+        assertEquals(500, model.estimateMs(request("report.odt", "pdf")));
+        assertEquals(5, model.estimateMs(request("report.txt", "txt")));
+    }
+
+    @Test
+    void testEstimateMs_KnownTemplateUsesHistory() {
+        // Given
+        RenderCostModel model = model();
+        model.record(request("report.odt", "pdf"), 2000);
+
+        // When
+        long known = model.estimateMs(request("report.odt", "pdf"));
+        long other = model.estimateMs(request("other.odt", "pdf"));
+
+        // Then
+        assertEquals(2000, known);
+        assertEquals(500, other);
+    }
+
+    @Test
+    void testEstimateMs_HistoryOfResolvedTemplateIsKeyedByUri() {
+        // Given: the recorded request points to the cached file of its template
+        RenderCostModel model = model();
+        TemplateRequest rendered = request("s3@bucket:report.odt", "pdf");
+        rendered.setResolvedTemplate(new TemplateContent("s3@bucket:report.odt", "/tmp/cache/report.odt",
+                new byte[16], "fingerprint"));
+        model.record(rendered, 2000);
+
+        // When: a new request is estimated before its template is resolved
+        long estimate = model.estimateMs(request("s3@bucket:report.odt", "pdf"));
+
+        // Then
+        assertEquals(2000, estimate);
+    }
+
+    @Test
+    void testInputBytes_UsesTemplateDataSizeWithoutMaterializing() {
+        // Given
+        TemplateRequest request = request("report.odt", "pdf");
+        request.setTemplateData(new TemplateData() {
+            @Override
+            public Map<String, Object> asMap() {
+                throw new AssertionError("template data must not be materialized");
+            }
+
+            @Override
+            public String fingerprint() {
+                return "fingerprint";
+            }
+
+            @Override
+            public long size() {
+                return 4096;
+            }
+        });
+        request.setImages(Map.of("logo", "0123456789"));
+
+        // When
+        long bytes = RenderCostModel.inputBytes(request);
+
+        // Then
+        assertEquals(4106, bytes);
+    }
+
+    @Test
+    void testRecord_AveragesRenderTimes() {
+        // Given
+        RenderCostModel model = model();
+        model.record(request("report.odt", "pdf"), 1000);
+
+        // When
+        model.record(request("report.odt", "pdf"), 2000);
+
+        // Then
+        assertEquals(1300, model.estimateMs(request("report.odt", "pdf")));
+    }
+}
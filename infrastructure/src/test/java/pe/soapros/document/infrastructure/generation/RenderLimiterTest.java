@@ -0,0 +1,145 @@
+package pe.soapros.document.infrastructure.generation;
+
+import org.junit.jupiter.api.Test;
+import pe.soapros.document.domain.DocumentFormat;
+import pe.soapros.document.domain.exception.DocumentGenerationException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RenderLimiter permits.
+ */
+class RenderLimiterTest {
+
+    static RenderLimiter limiter(int pdf, int total) {
+        RenderLimiter limiter = new RenderLimiter();
+        limiter.pdfPermits = pdf;
+        limiter.htmlPermits = total;
+        limiter.txtPermits = total;
+        limiter.totalPermits = total;
+        limiter.init();
+        return limiter;
+    }
+
+    @Test
+    void testAcquire_CountsInFlightUntilClosed() {
+        // Given
+        RenderLimiter limiter = limiter(2, 4);
+
+        // When
+        RenderLimiter.Permit first = limiter.acquire(DocumentFormat.PDF);
+        RenderLimiter.Permit second = limiter.acquire(DocumentFormat.HTML);
+
+        // Then
+        assertEquals(1, limiter.getInFlight(DocumentFormat.PDF));
+        assertEquals(1, limiter.getInFlight(DocumentFormat.HTML));
+        first.close();
+        first.close();
+        assertEquals(0, limiter.getInFlight(DocumentFormat.PDF));
+        second.close();
+        assertEquals(0, limiter.getInFlight(DocumentFormat.HTML));
+        assertEquals(0, limiter.getWaitCount());
+    }
+
+    @Test
+    void testAcquire_WaitsForReleasedPermit() throws Exception {
+        // Given
+        RenderLimiter limiter = limiter(1, 4);
+        RenderLimiter.Permit held = limiter.acquire(DocumentFormat.PDF);
+
+        // When
+        CompletableFuture<RenderLimiter.Permit> waiting =
+                CompletableFuture.supplyAsync(() -> limiter.acquire(DocumentFormat.PDF));
+        Thread.sleep(100);
+
+        // Then
+        assertFalse(waiting.isDone());
+        held.close();
+        waiting.get(5, TimeUnit.SECONDS).close();
+        assertEquals(1, limiter.getWaitCount());
+        assertEquals(0, limiter.getInFlight(DocumentFormat.PDF));
+    }
+
+    @Test
+    void testAcquire_GrantsWaitersHighestPriorityFirst() throws Exception {
+        // Given
+        RenderLimiter limiter = limiter(1, 4);
+        RenderLimiter.Permit held = limiter.acquire(DocumentFormat.PDF);
+        List<Long> granted = new CopyOnWriteArrayList<>();
+        List<CompletableFuture<Void>> waiting = new ArrayList<>();
+        for (long priority : new long[]{1, 3, 2}) {
+            waiting.add(CompletableFuture.runAsync(() -> {
+                try (RenderLimiter.Permit permit = limiter.acquire(DocumentFormat.PDF, priority)) {
+                    granted.add(priority);
+                }
+            }));
+            awaitWaits(limiter, waiting.size());
+        }
+
+        // When
+        held.close();
+
+        // Then
+        CompletableFuture.allOf(waiting.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+        assertEquals(List.of(3L, 2L, 1L), granted);
+    }
+
+    @Test
+    void testAcquire_WaiterOfBusyFormatDoesNotBlockOtherFormats() throws Exception {
+        // Given
+        RenderLimiter limiter = limiter(1, 4);
+        RenderLimiter.Permit held = limiter.acquire(DocumentFormat.PDF);
+        CompletableFuture<RenderLimiter.Permit> pdf =
+                CompletableFuture.supplyAsync(() -> limiter.acquire(DocumentFormat.PDF, 10));
+        awaitWaits(limiter, 1);
+
+        // When
+        RenderLimiter.Permit html = limiter.acquire(DocumentFormat.HTML, 0);
+
+        // Then
+        assertEquals(1, limiter.getInFlight(DocumentFormat.HTML));
+        html.close();
+        held.close();
+        pdf.get(5, TimeUnit.SECONDS).close();
+    }
+
+    @Test
+    void testAcquire_InterruptedWaitHoldsNoPermit() throws Exception {
+        // Given: the total budget is taken by an HTML render
+        RenderLimiter limiter = limiter(1, 1);
+        RenderLimiter.Permit held = limiter.acquire(DocumentFormat.HTML);
+        CompletableFuture<Throwable> failure = new CompletableFuture<>();
+        Thread waiter = new Thread(() -> {
+            try {
+                limiter.acquire(DocumentFormat.PDF).close();
+                failure.complete(null);
+            } catch (Throwable e) {
+                failure.complete(e);
+            }
+        });
+        waiter.start();
+        Thread.sleep(100);
+
+        // When
+        waiter.interrupt();
+
+        // Then
+        assertInstanceOf(DocumentGenerationException.class, failure.get(5, TimeUnit.SECONDS));
+        assertEquals(0, limiter.getInFlight(DocumentFormat.PDF));
+        held.close();
+    }
+
+    static void awaitWaits(RenderLimiter limiter, long waits) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (limiter.getWaitCount() < waits && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(waits, limiter.getWaitCount());
+    }
+}
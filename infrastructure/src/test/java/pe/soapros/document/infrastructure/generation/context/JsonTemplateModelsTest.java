@@ -0,0 +1,142 @@
+package pe.soapros.document.infrastructure.generation.context;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+import freemarker.template.TemplateExceptionHandler;
+import freemarker.template.TemplateHashModel;
+import freemarker.template.TemplateMethodModelEx;
+import freemarker.template.TemplateScalarModel;
+import freemarker.template.TemplateSequenceModel;
+import org.junit.jupiter.api.Test;
+import pe.soapros.document.domain.TemplateRequest;
+import pe.soapros.document.domain.exception.DocumentTimeoutException;
+import pe.soapros.document.infrastructure.util.VariableExtractor;
+
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the JSON-backed template context: same variables as VariableExtractor.
+ */
+class JsonTemplateModelsTest {
+
+    private static final String JSON = """
+            {
+              "cliente": {"nombre": "Ana", "documento": {"numero": 12345678}},
+              "total": 10.5,
+              "nota": null,
+              "movimientos": [
+                {"fecha": "2024-01-01", "monto": 1, "detalle": {"glosa": "Compra"}},
+                {"fecha": "2024-01-02", "monto": 2}
+              ],
+              "etiquetas": ["a", "b"]
+            }
+            """;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testRootVariables_MatchVariableExtractor() throws Exception {
+        // Given
+        ObjectNode data = (ObjectNode) objectMapper.readTree(JSON);
+        Map<String, Object> expected = new VariableExtractor().extract("", data);
+
+        // When
+        Map<String, Object> variables = JsonTemplateModels.rootVariables(data, new TemplateRequest());
+
+        // Then
+        assertEquals(expected.keySet(), variables.keySet());
+        assertEquals("Ana", text(variables.get("nombre")));
+        assertEquals("12345678", text(variables.get("numero")));
+        assertEquals("10.5", text(variables.get("total")));
+        assertEquals("", text(variables.get("nota")));
+    }
+
+    @Test
+    void testSequences_FlattenItemsLikeVariableExtractor() throws Exception {
+        // Given
+        ObjectNode data = (ObjectNode) objectMapper.readTree(JSON);
+
+        // When
+        Map<String, Object> variables = JsonTemplateModels.rootVariables(data, new TemplateRequest());
+        TemplateSequenceModel movimientos = (TemplateSequenceModel) variables.get("movimientos");
+        TemplateSequenceModel etiquetas = (TemplateSequenceModel) variables.get("etiquetas");
+
+        // Then
+        assertEquals(2, movimientos.size());
+        TemplateHashModel first = (TemplateHashModel) movimientos.get(0);
+        assertEquals("2024-01-01", text(first.get("fecha")));
+        assertEquals("Compra", text(first.get("glosa")));
+        assertNull(first.get("detalle"));
+        assertEquals("2", text(((TemplateHashModel) movimientos.get(1)).get("monto")));
+
+        assertEquals("b", text(((TemplateHashModel) etiquetas.get(1)).get("etiquetas")));
+    }
+
+    @Test
+    void testSequence_StopsLongMergeOnceDeadlinePasses() throws Exception {
+        // Given: a long statement whose deadline passes once 1000 rows have been merged
+        ObjectNode data = objectMapper.createObjectNode();
+        ArrayNode movimientos = data.putArray("movimientos");
+        for (int i = 0; i < 100_000; i++) {
+            movimientos.addObject().put("monto", i);
+        }
+        TemplateRequest request = new TemplateRequest();
+        request.setTemplatePath("estado.docx");
+        Configuration configuration = new Configuration(Configuration.VERSION_2_3_23);
+        configuration.setTemplateExceptionHandler(TemplateExceptionHandler.RETHROW_HANDLER);
+        configuration.setLogTemplateExceptions(false);
+        Template template = new Template("estado",
+                "<#list movimientos as m>${m.monto}${merged()}\n</#list>", configuration);
+        Map<String, Object> variables = JsonTemplateModels.rootVariables(data, request);
+        AtomicInteger merged = new AtomicInteger();
+        variables.put("merged", (TemplateMethodModelEx) arguments -> {
+            if (merged.incrementAndGet() == 1000) {
+                request.setDeadline(1);
+            }
+            return "";
+        });
+        // Nothing checks the deadline on writes here: only reading the next row can stop the merge
+        StringWriter output = new StringWriter();
+
+        // When
+        Exception error = assertThrows(Exception.class, () -> template.process(variables, output));
+
+        // Then
+        assertInstanceOf(DocumentTimeoutException.class, timeoutIn(error));
+        assertEquals(1000, output.toString().lines().count());
+    }
+
+    @Test
+    void testJsonNodeMap_ExposesConvertValueTypes() throws Exception {
+        // Given
+        ObjectNode data = (ObjectNode) objectMapper.readTree(JSON);
+
+        // When
+        JsonNodeMap map = new JsonNodeMap(data);
+
+        // Then
+        assertEquals(objectMapper.convertValue(data, Map.class), map);
+        assertInstanceOf(List.class, map.get("movimientos"));
+        assertTrue(map.containsKey("nota"));
+        assertNull(map.get("nota"));
+    }
+
+    private static String text(Object model) throws Exception {
+        return ((TemplateScalarModel) model).getAsString();
+    }
+
+    private static Throwable timeoutIn(Throwable error) {
+        while (error.getCause() != null && !(error instanceof DocumentTimeoutException)) {
+            error = error.getCause();
+        }
+        return error;
+    }
+}
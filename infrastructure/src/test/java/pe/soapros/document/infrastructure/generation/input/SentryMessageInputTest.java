@@ -0,0 +1,86 @@
+package pe.soapros.document.infrastructure.generation.input;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the selective deserialization of SentryMessageInput.
+ */
+class SentryMessageInputTest {
+
+    private static final String MESSAGE = """
+            {
+              "metadata": {"id": "m-1"},
+              "data": {
+                "cliente": {"nombre": "Ana", "tags": ["vip", null]},
+                "clienteData": {"movimientos": [{"monto": 10.5}, {"monto": -3}]},
+                "item_canonico": {
+                  "outputs": [{
+                    "type": "ec",
+                    "composicion": [{
+                      "type": "template",
+                      "metadata": {
+                        "resource": {"location": "s3@host:t.docx", "output_format": "pdf", "data": {"nombre": "Ana"}},
+                        "result": {"location": null}
+                      }
+                    }]
+                  }]
+                }
+              }
+            }
+            """;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testRawSections_AreKeptAsJsonText() throws Exception {
+        // When
+        SentryMessageInput input = objectMapper.readValue(MESSAGE, SentryMessageInput.class);
+
+        // Then
+        assertEquals("{\"nombre\":\"Ana\",\"tags\":[\"vip\",null]}", input.getData().getCliente().json());
+        assertEquals("Ana", input.getData().getItem_canonico().getOutputs().get(0).getComposicion().get(0)
+                .getMetadata().getResource().getData().get("nombre").asText());
+    }
+
+    @Test
+    void testSerialization_CopiesRawSectionsVerbatim() throws Exception {
+        // Given
+        SentryMessageInput input = objectMapper.readValue(MESSAGE, SentryMessageInput.class);
+
+        // When
+        JsonNode written = objectMapper.readTree(objectMapper.writeValueAsString(input));
+
+        // Then
+        JsonNode original = objectMapper.readTree(MESSAGE);
+        assertEquals(original.get("metadata"), written.get("metadata"));
+        assertEquals(original.at("/data/cliente"), written.at("/data/cliente"));
+        assertEquals(original.at("/data/clienteData"), written.at("/data/clienteData"));
+    }
+
+    @Test
+    void testSkippingReader_SkipsRawSectionsAndKeepsTemplateData() throws Exception {
+        // When
+        SentryMessageInput input = RawJson.skippingReader(objectMapper, SentryMessageInput.class).readValue(MESSAGE);
+
+        // Then
+        assertSame(RawJson.SKIPPED, input.getMetadata());
+        assertSame(RawJson.SKIPPED, input.getData().getCliente());
+        assertSame(RawJson.SKIPPED, input.getData().getClienteData());
+        assertEquals("Ana", input.getData().getItem_canonico().getOutputs().get(0).getComposicion().get(0)
+                .getMetadata().getResource().getData().get("nombre").asText());
+    }
+
+    @Test
+    void testSerialization_RejectsSkippedSections() throws Exception {
+        // Given
+        SentryMessageInput input = RawJson.skippingReader(objectMapper, SentryMessageInput.class).readValue(MESSAGE);
+
+        // When / Then
+        assertThrows(JsonMappingException.class, () -> objectMapper.writeValueAsString(input));
+    }
+}
@@ -0,0 +1,72 @@
+package pe.soapros.document.infrastructure.mapper;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import pe.soapros.document.infrastructure.config.ObjectMapperProducer;
+import pe.soapros.document.infrastructure.generation.input.RawJson;
+import pe.soapros.document.infrastructure.generation.input.SentryMessageInput;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SentryResponseWriter: the original JSON is copied and only the results are rewritten.
+ */
+class SentryResponseWriterTest {
+
+    private static final String MESSAGE = """
+            {"metadata": {"id": "m-1"}, "extra": [1, 2],
+             "data": {"clienteData": {"saldo": 10.5},
+              "item_canonico": {"outputs": [{"type": "ec", "composicion": [
+                {"type": "template", "metadata": {"resource": {"data": {"a": 1}}, "result": {"location": null, "keep": true}}},
+                {"type": "template", "metadata": {"resource": {"data": {"b": 2}}}},
+                {"type": "text", "value": "hola"}
+              ]}]}}}
+            """;
+
+    // Configured as in the application: unmodelled fields ("extra", "value", "keep") are ignored
+    private final ObjectMapper objectMapper = new ObjectMapperProducer().createObjectMapper();
+
+    @Test
+    void testWriteAsBytes_RewritesOnlyResults() throws Exception {
+        // Given
+        SentryResponseWriter writer = new SentryResponseWriter();
+        writer.objectMapper = objectMapper;
+        byte[] source = MESSAGE.getBytes(StandardCharsets.UTF_8);
+        SentryMessageInput message = RawJson.skippingReader(objectMapper, SentryMessageInput.class).readValue(source);
+        setResult(message, 0, "s3@docs:a.pdf", null);
+        setResult(message, 1, null, "timeout");
+
+        // When
+        byte[] written = writer.writeAsBytes(new SentryResponse(message, () -> new ByteArrayInputStream(source)));
+
+        // Then
+        JsonNode response = objectMapper.readTree(written);
+        JsonNode compositions = response.at("/data/item_canonico/outputs/0/composicion");
+        assertEquals("s3@docs:a.pdf", compositions.at("/0/metadata/result/location").asText());
+        assertTrue(compositions.at("/0/metadata/result/keep").asBoolean());
+        assertTrue(compositions.at("/1/metadata/result/location").isNull());
+        assertEquals("timeout", compositions.at("/1/metadata/result/error").asText());
+        assertEquals("hola", compositions.at("/2/value").asText());
+
+        JsonNode original = objectMapper.readTree(source);
+        assertEquals(original.get("metadata"), response.get("metadata"));
+        assertEquals(original.get("extra"), response.get("extra"));
+        assertEquals(original.at("/data/clienteData"), response.at("/data/clienteData"));
+        assertEquals(original.at("/data/item_canonico/outputs/0/composicion/0/metadata/resource"),
+                compositions.at("/0/metadata/resource"));
+    }
+
+    private static void setResult(SentryMessageInput message, int index, String location, String error) {
+        SentryMessageInput.MetadataNode metadata = message.getData().getItem_canonico().getOutputs().get(0)
+                .getComposicion().get(index).getMetadata();
+        if (metadata.getResult() == null) {
+            metadata.setResult(new SentryMessageInput.ResultNode());
+        }
+        metadata.getResult().setLocation(location);
+        metadata.getResult().setError(error);
+    }
+}
@@ -0,0 +1,50 @@
+package pe.soapros.document.infrastructure.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for BoundedLruCache weight bound.
+ */
+class BoundedLruCacheTest {
+
+    @Test
+    void testComputeIfPresent_EvictsWhenValueGrows() {
+        // Given
+        List<String> evicted = new ArrayList<>();
+        BoundedLruCache<String, String> cache = new BoundedLruCache<>("test", 10, String::length,
+                (key, value) -> evicted.add(key));
+        cache.put("a", "aaa");
+        cache.put("b", "bbb");
+
+        // When
+        cache.computeIfPresent("b", value -> "bbbbbbbb");
+
+        // Then
+        assertEquals(List.of("a"), evicted);
+        assertNull(cache.get("a"));
+        assertEquals("bbbbbbbb", cache.get("b"));
+        assertEquals(8, cache.stats().weight());
+    }
+
+    @Test
+    void testComputeIfPresent_DropsValueThatNoLongerFits() {
+        // Given
+        List<String> evicted = new ArrayList<>();
+        BoundedLruCache<String, String> cache = new BoundedLruCache<>("test", 10, String::length,
+                (key, value) -> evicted.add(key));
+        cache.put("a", "aaa");
+
+        // When
+        cache.computeIfPresent("a", value -> "aaaaaaaaaaaa");
+
+        // Then
+        assertEquals(List.of("a"), evicted);
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.stats().weight());
+    }
+}